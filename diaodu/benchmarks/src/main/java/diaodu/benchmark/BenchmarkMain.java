@@ -0,0 +1,23 @@
+package diaodu.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * benchmarks.jar 的入口，接受 JMH 的全部命令行参数，并默认加上 GC 分析器以给出每次调度的内存分配速率。
+ * 例如只测量部分策略：java -jar benchmarks.jar -p scheduler=random,weighted -p serverCount=1000
+ */
+public class BenchmarkMain
+{
+    public static void main(String[] args) throws Exception
+    {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,90 @@
+package diaodu.benchmark;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 各调度策略在不同集群规模和负载比例下的吞吐量与延迟。集群模型由种子生成并在每组参数下只生成一次，
+ * 测量的只是调度本身（包括每次调度新建的上下文和残量图）。任务数目由 slot 总数乘以负载比例得到，
+ * 准备阶段输出实际的任务数目并检查其与负载比例一致。weighted 枚举候选流时只限制搜索步数，不受时间预算影响。
+ * scheduleConcurrent 由多个线程在同一个集群模型和同一个调度策略对象上同时调度，与单线程的 schedule 比较吞吐量，
+ * 检查调度策略不保存状态后能否随线程数扩展，线程数可以用 -t 修改。
+ * 调度策略位于默认包中，因此在准备阶段通过反射取得 BenchmarkSupport 给出的调度函数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SchedulerBenchmark
+{
+    //SchedulerRegistry 中注册的策略名称
+    @Param({"random",
+            "load-balancing-augment-path", "load-balancing-hopcroft-karp", "load-balancing-max-flow",
+            "coupling-augment-path", "coupling-hopcroft-karp", "coupling-max-flow",
+            "weighted", "weighted-min-cost"})
+    public String scheduler;
+
+    @Param({"100", "1000"})
+    public int serverCount;
+
+    //任务数目与 slot 总数之比
+    @Param({"0.5", "0.9"})
+    public double loadFactor;
+
+    @Param({"2", "3"})
+    public int replicationFactor;
+
+    //服务器 slot 数目的取值范围
+    @Param({"1-8", "4-16"})
+    public String slots;
+
+    //每个任务具有紧密度的任务数目，0 为稠密矩阵
+    @Param({"16"})
+    public int affinityDegree;
+
+    @Param({"1"})
+    public long seed;
+
+    private Object model;
+
+    private Function<Object, Object> schedule;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception
+    {
+        Class<?> support = Class.forName("BenchmarkSupport");
+        Method createModel = support.getMethod("createModel",
+                int.class, double.class, int.class, String.class, int.class, long.class);
+        Method getScheduler = support.getMethod("getScheduler", String.class);
+        model = createModel.invoke(null, serverCount, loadFactor, replicationFactor, slots, affinityDegree, seed);
+        schedule = (Function<Object, Object>) getScheduler.invoke(null, scheduler);
+
+        long totalSlots = (Long) support.getMethod("getTotalSlots", Object.class).invoke(null, model);
+        int taskCount = (Integer) support.getMethod("getTaskCount", Object.class).invoke(null, model);
+        if(taskCount != Math.round(loadFactor * totalSlots))
+            throw new IllegalStateException("任务数目 " + taskCount + " 与负载比例 " + loadFactor + " 和 slot 总数 " + totalSlots + " 不符");
+        System.out.println("# " + serverCount + " 个服务器，slot 总数 " + totalSlots + "，任务数目 " + taskCount);
+    }
+
+    @Benchmark
+    public void schedule(Blackhole blackhole)
+    {
+        blackhole.consume(schedule.apply(model));
+    }
+
+    //4 个线程共用同一个模型和调度函数，吞吐量为所有线程之和
+    @Benchmark
+    @Threads(4)
+    @BenchmarkMode(Mode.Throughput)
+    public void scheduleConcurrent(Blackhole blackhole)
+    {
+        blackhole.consume(schedule.apply(model));
+    }
+}
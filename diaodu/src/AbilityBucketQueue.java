@@ -0,0 +1,124 @@
+import java.util.Arrays;
+
+/**
+ * 按执行能力分桶的服务器队列：服务器的最大执行能力 min{slot, 本地任务数目} 是较小的非负整数，
+ * 因此把执行能力相同的服务器放在同一个桶（双向链表）中，修改执行能力为 O(1)，
+ * 取最大执行能力的服务器时从记录的最高桶向下查找第一个非空桶，执行能力只减小时均摊为 O(1)。
+ * 服务器以编号 1..serverCount 表示
+ */
+public class AbilityBucketQueue
+{
+    //head[a] 为执行能力为 a 的桶中第一个服务器，-1 表示桶为空
+    private int[] head;
+
+    private final int[] next;
+
+    private final int[] prev;
+
+    private final int[] ability;
+
+    //可能非空的最高桶，不小于实际的最大执行能力
+    private int top = 0;
+
+    private final int serverCount;
+
+    /**
+     * 所有服务器的执行能力初始为 0
+     * @param serverCount : 服务器数目
+     */
+    public AbilityBucketQueue(int serverCount)
+    {
+        head = new int[16];
+        next = new int[serverCount + 1];
+        prev = new int[serverCount + 1];
+        ability = new int[serverCount + 1];
+        Arrays.fill(head, -1);
+        for(int s = serverCount; s >= 1; s--)
+            link(s, 0);
+        this.serverCount = serverCount;
+    }
+
+    public int get(int server)
+    {
+        return ability[server];
+    }
+
+    /**
+     * 修改服务器的执行能力
+     * @param server : 服务器编号
+     * @param value : 执行能力，不小于 0
+     */
+    public void set(int server, int value)
+    {
+        if(ability[server] == value)
+            return;
+        unlink(server);
+        if(value >= head.length) {
+            int length = head.length;
+            head = Arrays.copyOf(head, Math.max(value + 1, length * 2));
+            Arrays.fill(head, length, head.length, -1);
+        }
+        link(server, value);
+        if(value > top)
+            top = value;
+    }
+
+    //执行能力大于 0 时减 1
+    public void decrease(int server)
+    {
+        if(ability[server] > 0)
+            set(server, ability[server] - 1);
+    }
+
+    /**
+     * 执行能力最大的服务器，执行能力相同时取其中任一个
+     * @return 服务器编号，没有服务器时返回 -1
+     */
+    public int getMax()
+    {
+        if(serverCount == 0)
+            return -1;
+        while(top > 0 && head[top] == -1)
+            top--;
+        return head[top];
+    }
+
+    /**
+     * 除 server 之外执行能力最大的服务器，只有 server 一个服务器时返回 server
+     * @param server : 排除的服务器编号
+     * @return
+     */
+    public int getMaxExcluding(int server)
+    {
+        int max = getMax();
+        if(max != server)
+            return max;
+        if(next[server] != -1)
+            return next[server];
+        for(int a = ability[server] - 1; a >= 0; a--) {
+            if(head[a] != -1)
+                return head[a];
+        }
+        return server;
+    }
+
+    private void link(int server, int value)
+    {
+        ability[server] = value;
+        prev[server] = -1;
+        next[server] = head[value];
+        if(head[value] != -1)
+            prev[head[value]] = server;
+        head[value] = server;
+    }
+
+    private void unlink(int server)
+    {
+        if(prev[server] != -1)
+            next[prev[server]] = next[server];
+        else
+            head[ability[server]] = next[server];
+        if(next[server] != -1)
+            prev[next[server]] = prev[server];
+    }
+}
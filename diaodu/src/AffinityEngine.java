@@ -0,0 +1,11 @@
+/**
+ * ScheduleWithWeight 固定核任务后按关联度分配任务所采用的求解方式
+ */
+public enum AffinityEngine
+{
+    //从最大执行能力服务器出发枚举候选流，依次采用净节省费用最大的流
+    CANDIDATE_FLOWS,
+
+    //MinCostFlow 最小费用最大流，服务器->任务 边的费用由该任务与服务器核任务的关联度决定
+    MIN_COST_FLOW
+}
@@ -0,0 +1,46 @@
+/**
+ * 任务之间的紧密度（关联度）。紧密度是对称的，get(i, j) 与 get(j, i) 相同，任务自身和自身的紧密度为 0，
+ * 调用者不需要再按下标大小交换 i 和 j
+ */
+public interface AffinityMatrix
+{
+    //任务数目，任务编号为 1..getTaskCount()
+    int getTaskCount();
+
+    /**
+     * 获取两个任务之间的紧密度
+     * @param i : 任务编号
+     * @param j : 任务编号
+     * @return
+     */
+    int get(int i, int j);
+
+    /**
+     * 与任务 i 的紧密度可能大于 0 的任务数目，即 forEachNeighbor 最多访问的任务数，稠密存储时为 taskCount - 1
+     * @param i : 任务编号
+     * @return
+     */
+    default int getNeighborCount(int i)
+    {
+        return getTaskCount() - 1;
+    }
+
+    /**
+     * 依次访问与任务 i 的紧密度大于 0 的任务
+     * @param i : 任务编号
+     * @param consumer : 访问者
+     */
+    default void forEachNeighbor(int i, NeighborConsumer consumer)
+    {
+        for(int j = 1; j <= getTaskCount(); j++) {
+            int value = get(i, j);
+            if(value > 0)
+                consumer.accept(j, value);
+        }
+    }
+
+    interface NeighborConsumer
+    {
+        void accept(int task, int value);
+    }
+}
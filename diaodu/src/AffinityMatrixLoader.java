@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 读取紧密度矩阵文件。文本格式与 relation_matrix.txt 相同：第 i 行依次为任务 i 与任务 i+1..n 的紧密度，
+ * 以制表符（或空格）分隔，共 n-1 行，任务数目 n 由第一个非空行的元素个数得到，空行被忽略，每一行的元素个数必须正好为 n-i。
+ * 文本按窗口映射后逐字节解析，解析过程中不产生字符串和其他临时对象，文件大小不受单个缓冲区 2 GiB 的限制。
+ * 文本也可以转换为 MappedAffinityMatrix 的二进制格式，之后直接映射而不需要再解析
+ */
+public class AffinityMatrixLoader
+{
+    //每次映射的文本长度
+    private static final int WINDOW_SIZE = 1 << 28;
+
+    /**
+     * 按文件内容载入紧密度矩阵：二进制格式的文件以只读方式映射，文本格式的文件解析到堆内的压缩矩阵中
+     * @param file : 矩阵文件
+     * @return
+     * @throws IOException
+     */
+    public static AffinityMatrix load(Path file) throws IOException
+    {
+        if(isBinary(file))
+            return MappedAffinityMatrix.open(file);
+        return loadText(file);
+    }
+
+    /**
+     * 解析文本格式的矩阵文件
+     * @param file : 文本格式的矩阵文件
+     * @return
+     * @throws IOException
+     */
+    public static PackedAffinityMatrix loadText(Path file) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            PackedAffinityMatrix matrix = new PackedAffinityMatrix(readTaskCount(channel));
+            parse(channel, file, matrix.getTaskCount(), matrix::set);
+            return matrix;
+        }
+    }
+
+    /**
+     * 把文本格式的矩阵文件转换为二进制格式，矩阵直接写入映射的输出文件，不占用堆内存
+     * @param text : 文本格式的矩阵文件
+     * @param binary : 输出的二进制文件
+     * @return 任务数目
+     * @throws IOException
+     */
+    public static int convert(Path text, Path binary) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(text, StandardOpenOption.READ)) {
+            MappedAffinityMatrix matrix = MappedAffinityMatrix.create(binary, readTaskCount(channel));
+            parse(channel, text, matrix.getTaskCount(), matrix::set);
+            matrix.force();
+            return matrix.getTaskCount();
+        }
+    }
+
+    //文件以二进制格式的魔数开头
+    private static boolean isBinary(Path file) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while(magic.hasRemaining()) {
+                if(channel.read(magic) < 0)
+                    return false;
+            }
+            magic.flip();
+            return magic.getInt() == MappedAffinityMatrix.MAGIC;
+        }
+    }
+
+    //第一个非空行的元素个数加 1 即为任务数目
+    private static int readTaskCount(FileChannel channel) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        long position = 0;
+        int count = 0;
+        boolean inNumber = false;
+        while(channel.read(buffer, position) > 0) {
+            buffer.flip();
+            position += buffer.remaining();
+            while(buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if(b >= '0' && b <= '9') {
+                    if(!inNumber)
+                        count++;
+                    inNumber = true;
+                }
+                else if(b == '\n' && count > 0)
+                    return count + 1;
+                else
+                    inNumber = false;
+            }
+            buffer.clear();
+        }
+        return count + 1;
+    }
+
+    /**
+     * 逐字节解析文本，数字可能跨越两个映射窗口，因此解析状态在窗口之间保持
+     * @param channel : 文本文件
+     * @param file : 文件路径，用于错误信息
+     * @param taskCount : 任务数目
+     * @param sink : 接收解析出的元素
+     */
+    private static void parse(FileChannel channel, Path file, int taskCount, ValueSink sink) throws IOException
+    {
+        long size = channel.size();
+        int i = 1, j = 2;
+        int value = 0;
+        boolean inNumber = false;
+        for(long position = 0; position < size; position += WINDOW_SIZE) {
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position));
+            int limit = window.limit();
+            for(int k = 0; k < limit; k++) {
+                byte b = window.get(k);
+                if(b >= '0' && b <= '9') {
+                    //超过上限时立即报错，value 不会溢出
+                    value = value * 10 + (b - '0');
+                    if(value > Byte.MAX_VALUE)
+                        throw new IOException(file + " 第 " + i + " 行的紧密度超过 " + Byte.MAX_VALUE);
+                    inNumber = true;
+                    continue;
+                }
+                if(b != '\t' && b != ' ' && b != '\n' && b != '\r')
+                    throw new IOException(file + " 第 " + i + " 行含有无法解析的字符 '" + (char) b + "'");
+                if(inNumber) {
+                    check(file, taskCount, i, j);
+                    sink.set(i, j++, value);
+                    value = 0;
+                    inNumber = false;
+                }
+                //空行不计入行数
+                if(b == '\n' && j > i + 1) {
+                    checkRowEnd(file, taskCount, i, j);
+                    i++;
+                    j = i + 1;
+                }
+            }
+        }
+        //最后一行可能没有换行符
+        if(inNumber) {
+            check(file, taskCount, i, j);
+            sink.set(i, j++, value);
+        }
+        if(j > i + 1) {
+            checkRowEnd(file, taskCount, i, j);
+            i++;
+        }
+        if(i < taskCount)
+            throw new IOException(file + " 只有 " + (i - 1) + " 行，应为 " + (taskCount - 1) + " 行");
+    }
+
+    //第 i 行的第 j-i 个元素
+    private static void check(Path file, int taskCount, int i, int j) throws IOException
+    {
+        if(j > taskCount)
+            throw new IOException(file + " 第 " + i + " 行的元素多于 " + (taskCount - i) + " 个");
+    }
+
+    //第 i 行结束时已有 j-i-1 个元素
+    private static void checkRowEnd(Path file, int taskCount, int i, int j) throws IOException
+    {
+        if(j <= taskCount)
+            throw new IOException(file + " 第 " + i + " 行只有 " + (j - i - 1) + " 个元素，应为 " + (taskCount - i) + " 个");
+    }
+
+    private interface ValueSink
+    {
+        void set(int i, int j, int value);
+    }
+}
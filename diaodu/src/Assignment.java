@@ -0,0 +1,93 @@
+import java.util.*;
+
+/**
+ * 调度策略的输出：每个任务分配到的服务器。创建后不再修改
+ */
+public class Assignment
+{
+    private final ClusterModel model;
+
+    //taskServer[任务编号] 为该任务分配到的服务器编号，0 表示没有分配
+    private final int[] taskServer;
+
+    //写回了分配结果的服务器集合
+    private final List<Server> servers;
+
+    private final int assignedCount;
+
+    private final int localTaskCount;
+
+    private Assignment(ClusterModel model, int[] taskServer, List<Server> servers)
+    {
+        this.model = model;
+        this.taskServer = taskServer;
+        this.servers = Collections.unmodifiableList(servers);
+        int assignedCount = 0, localTaskCount = 0;
+        for(int task = 1; task < taskServer.length; task++) {
+            if(taskServer[task] == 0)
+                continue;
+            assignedCount++;
+            if(model.isLocal(task, taskServer[task]))
+                localTaskCount++;
+        }
+        this.assignedCount = assignedCount;
+        this.localTaskCount = localTaskCount;
+    }
+
+    /**
+     * 由调度策略返回的服务器集合得到分配结果，一个任务出现在多个服务器上时以最后一个为准
+     * @param model : 调度所使用的模型
+     * @param servers : 写回了分配结果的服务器集合
+     * @return
+     */
+    public static Assignment fromServers(ClusterModel model, List<Server> servers)
+    {
+        IdRegistry registry = model.getRegistry();
+        int[] taskServer = new int[registry.getTaskCount() + 1];
+        for(Server server : servers) {
+            int serverId = registry.getServerId(server.getServerName());
+            for(String task : server.getAllocatedTask())
+                taskServer[registry.getTaskId(task)] = serverId;
+        }
+        return new Assignment(model, taskServer, servers);
+    }
+
+    public ClusterModel getModel()
+    {
+        return model;
+    }
+
+    //任务分配到的服务器编号，0 表示没有分配
+    public int getServer(int task)
+    {
+        return taskServer[task];
+    }
+
+    public List<Server> getServers()
+    {
+        return servers;
+    }
+
+    public int getAssignedCount()
+    {
+        return assignedCount;
+    }
+
+    //分配到存放其数据的服务器上的任务数目
+    public int getLocalTaskCount()
+    {
+        return localTaskCount;
+    }
+
+    //分配结果的质量评价，之后可以在其上增量地移动任务
+    public ScheduleEvaluator evaluate()
+    {
+        return new ScheduleEvaluator(this);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Assignment{assigned=" + assignedCount + ", local=" + localTaskCount + ", tasks=" + model.getTaskCount() + '}';
+    }
+}
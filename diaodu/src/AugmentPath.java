@@ -1,89 +1,115 @@
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.Arrays;
 
 /**
- * 增广路径操作类
+ * 增广路径操作类：在残量图上用迭代的深度优先搜索寻找增广路径。
+ * 结点是否已在本次搜索中访问过用搜索编号标记，当前路径用 int 数组作为栈保存，
+ * 同一个对象可以反复用于多次搜索而不需要清空
  */
 public class AugmentPath
 {
-    public static List<List<Edge>> flows = new ArrayList<>();
+    private final ResidualGraph graph;
+
+    //结点最近一次被访问时的搜索编号，为 0 表示从未访问
+    private final int[] visited;
+
+    //当前的搜索编号
+    private int epoch = 0;
+
+    //当前路径上经过的边，path[0..length)
+    private final int[] path;
+    private int length = 0;
+
+    //cursor[i] 为路径上第 i 个结点下一条待检查的边在 liveArcs 中的位置
+    private final int[] cursor;
+
+    //每次搜索结束时报告访问的结点数和检查的边数
+    private final ScheduleListener listener;
+
+    public AugmentPath(ResidualGraph graph)
+    {
+        this(graph, ScheduleListener.NONE);
+    }
+
+    public AugmentPath(ResidualGraph graph, ScheduleListener listener)
+    {
+        this.graph = graph;
+        this.listener = listener;
+        visited = new int[graph.getNodeCount()];
+        path = new int[graph.getNodeCount()];
+        cursor = new int[graph.getNodeCount() + 1];
+    }
+
     /**
-     * 判断从结点 start 到结点 end 是否具有一条增广路径,并将增广路径涉及到的路径放入到 list 集合中
+     * 判断从结点 start 到结点 end 是否具有一条增广路径，找到的路径可以通过 getLength 和 getArc 获取
      * @param start：起点
      * @param end：终点
      * @return
      */
-    public static boolean hasAugmentPath(String start, String end, List<Edge> path, Map<String, Edge> edges)
+    public boolean hasAugmentPath(int start, int end)
     {
-        //获取所有以结点 start 为起点的边的集合
-        List<Edge> nextEdgeList = nextEdge(start, edges);
-        for(Edge edge : nextEdgeList) {
-
-            if(path.contains(edge)) //出现回路
-                continue;
-
-            path.add(edge);
-            //当前 edge 的终点和给定的终点相同，表明找到了一条增广路径
-            if(edge.getEnd().equals(end)){
-                return true;
+        nextEpoch();
+        length = 0;
+        visited[start] = epoch;
+        cursor[0] = graph.liveBegin(start);
+        int node = start;
+        int visitedNodes = 1, scannedArcs = 0;
+        while(true) {
+            if(cursor[length] < graph.liveEnd(node)) {
+                int arc = graph.getLiveArc(cursor[length]++);
+                int next = graph.getHead(arc);
+                scannedArcs++;
+                //已经访问过的结点不会再通向终点，直接跳过
+                if(visited[next] == epoch)
+                    continue;
+                visited[next] = epoch;
+                visitedNodes++;
+                path[length++] = arc;
+                //当前边的终点和给定的终点相同，表明找到了一条增广路径
+                if(next == end) {
+                    listener.onSearch(visitedNodes, scannedArcs);
+                    return true;
+                }
+                cursor[length] = graph.liveBegin(next);
+                node = next;
             }
             else {
-                //深度递归
-                if(hasAugmentPath(edge.getEnd(), end, path, edges)) //利用当前 edge 的终点作为起点递归查找增广路径
-                    return true;
-                else {
-                    path.remove(edge);
-                    continue;
+                //以当前结点为起点的边均已检查完毕，回退一步
+                if(length == 0) {
+                    listener.onSearch(visitedNodes, scannedArcs);
+                    return false;
                 }
+                node = graph.getTail(path[--length]);
             }
         }
-        return false;
     }
 
-    public static boolean getAllAugmentPath(String start, String end, List<Edge> path, Map<String, Edge> edges){
-
-        //获取所有以结点 start 为起点的边的集合
-        List<Edge> nextEdgeList = nextEdge(start, edges);
-        for(Edge edge : nextEdgeList) {
-            if(path.contains(edge))
-                continue;
-            path.add(edge);
+    //最近一次找到的增广路径所包含的边数
+    public int getLength()
+    {
+        return length;
+    }
 
-            //当前 edge 的终点和给定的终点相同，表明找到了一条增广路径
-            if(edge.getEnd().equals(end)){
-                //将当前所有可能的增广路径全加入到flows中
-                flows.add(new ArrayList<>(path));
-                path.remove(edge);
-                return false;
-            }
-            else {
-                //深度递归
-                if(getAllAugmentPath(edge.getEnd(), end, path, edges)) //利用当前 edge 的终点作为起点递归查找增广路径
-                    return true;
-                else {
-                    path.remove(edge);
-                    continue;
-                }
-            }
-        }
-        return false;
+    //最近一次找到的增广路径上的第 i 条边
+    public int getArc(int i)
+    {
+        return path[i];
     }
 
     /**
-     * 获取以 start 为起点的边的集合 如以"S"为起点的 nextEdge 为 {"S -> V2", "S -> V1"}
-     * @param start
-     * @return
+     * 沿最近一次找到的增广路径推送一单位的流，即将路径上的每条边原地反向
      */
-    public static List<Edge> nextEdge(String start, Map<String, Edge> edges)
+    public void augment()
+    {
+        for(int i = 0; i < length; i++)
+            graph.push(path[i], 1);
+    }
+
+    private void nextEpoch()
     {
-        List<Edge> nextEdgeList = new ArrayList<>();
-        for(String path : edges.keySet()) {
-            Edge edge = edges.get(path);
-            if(edge.getStart().equals(start))
-                nextEdgeList.add(edges.get(path));
+        if(epoch == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            epoch = 0;
         }
-        return nextEdgeList;
+        epoch++;
     }
 }
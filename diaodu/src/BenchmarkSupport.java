@@ -0,0 +1,76 @@
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 供基准测试使用的入口。JMH 要求基准测试类位于具名的包中，而调度策略均在默认包中，具名包中的类不能直接引用它们，
+ * 因此基准测试在准备阶段通过反射调用这里的静态方法，之后只通过 JDK 的 Function 接口调用调度策略，测量过程中不再有反射的开销
+ */
+public class BenchmarkSupport
+{
+    //基准测试使用的调度策略，不报告调度过程。weighted 枚举候选流时只限制搜索步数而不限制时间，
+    //否则测得的是时间预算本身，并且结果随机器的快慢变化；核任务由默认种子选取，因此每次运行的搜索相同
+    private static final SchedulerRegistry registry = new SchedulerRegistry(ScheduleListener.NONE, Long.MAX_VALUE);
+
+    /**
+     * 由种子生成集群模型，任务数目为 slot 总数乘以负载比例（四舍五入），因此不会因为超过 slot 总数而被截断
+     * @param serverCount : 服务器数量
+     * @param loadFactor : 任务数目与 slot 总数之比，取值 (0, 1]
+     * @param replicationFactor : 每个任务的数据副本数目
+     * @param slotRange : slot 数目的取值范围，如 "1-8"
+     * @param affinityDegree : 大于 0 时每个任务只与该数目的任务具有紧密度（稀疏存储），为 0 时为稠密矩阵
+     * @param seed : 种子
+     * @return ClusterModel
+     */
+    public static Object createModel(int serverCount, double loadFactor, int replicationFactor, String slotRange,
+                                     int affinityDegree, long seed)
+    {
+        if(!(loadFactor > 0 && loadFactor <= 1))
+            throw new IllegalArgumentException("负载比例 " + loadFactor + " 应在 (0, 1] 之间");
+        String[] range = slotRange.split("-");
+        int minSlot = Integer.parseInt(range[0].trim());
+        int maxSlot = range.length > 1 ? Integer.parseInt(range[1].trim()) : minSlot;
+        long totalSlots = new WorkloadGenerator(serverCount, 0).setSeed(seed).setSlotRange(minSlot, maxSlot).getTotalSlots();
+        int taskCount = (int) Math.round(loadFactor * totalSlots);
+        DataSource ds = new WorkloadGenerator(serverCount, taskCount)
+                .setSeed(seed)
+                .setReplicationFactor(replicationFactor)
+                .setSlotRange(minSlot, maxSlot)
+                .setAffinityDegree(affinityDegree)
+                .generate();
+        return new ClusterModel(ds);
+    }
+
+    //集群模型中的任务数目
+    public static int getTaskCount(Object model)
+    {
+        return ((ClusterModel) model).getTaskCount();
+    }
+
+    //集群模型中所有服务器的 slot 总数
+    public static long getTotalSlots(Object model)
+    {
+        ClusterModel clusterModel = (ClusterModel) model;
+        long total = 0;
+        for(int server = 1; server <= clusterModel.getServerCount(); server++)
+            total += clusterModel.getServerSlot(server);
+        return total;
+    }
+
+    /**
+     * @param name : SchedulerRegistry 中的策略名称
+     * @return 输入 ClusterModel、输出 Assignment 的调度函数
+     */
+    public static Function<Object, Object> getScheduler(String name)
+    {
+        Scheduler scheduler = registry.get(name);
+        if(scheduler == null)
+            throw new IllegalArgumentException("未注册的调度策略: " + name + "，可用的策略: " + registry.getNames());
+        return model -> scheduler.schedule((ClusterModel) model);
+    }
+
+    //分配结果中的本地任务数目，用于在测量结束后检查结果
+    public static int getLocalTaskCount(Object assignment)
+    {
+        return ((Assignment) assignment).getLocalTaskCount();
+    }
+}
@@ -0,0 +1,176 @@
+import java.util.*;
+
+/**
+ * 调度策略的输入：由一个数据源预先构建好的只读索引（服务器的 slot 与负载、每个服务器的本地任务、每个任务的副本服务器、
+ * 残量图、紧密度矩阵），按服务器编号和任务编号存放在数组中。构建后不再修改，也不保留数据源本身，
+ * 所有调度策略和每次调度都共用这些索引，调度过程中的可变状态只保存在每次调度新建的 ScheduleContext 中。
+ * 返回的数组与紧密度矩阵是共用的，调用者不能修改
+ */
+public class ClusterModel
+{
+    private final IdRegistry registry;
+
+    private final AffinityMatrix relationValue;
+
+    //服务器在数据源中的顺序，调度结果按此顺序给出
+    private final String[] serverNames;
+
+    //按服务器编号存放的 slot 数目与初始负载
+    private final int[] serverSlot;
+    private final int[] serverLoad;
+
+    //replicaServers[任务编号] 为存放该任务数据的服务器编号
+    private final int[][] replicaServers;
+
+    //replicaOffset[任务编号] 为该任务的副本在所有副本中的起始位置，用于按 (任务, 副本) 建立标记数组
+    private final int[] replicaOffset;
+
+    //localTasks[服务器编号] 为数据存放在该服务器上的任务编号
+    private final int[][] localTasks;
+
+    //需要分配的任务编号，按编号升序
+    private final int[] tasks;
+
+    //残量图的原型，每次调度使用它的副本
+    private final ResidualGraph graph;
+
+    /**
+     * 由数据源构建索引，之后数据源的修改不会影响模型
+     * @param dataSource : 数据源
+     */
+    public ClusterModel(DataSource dataSource)
+    {
+        this.registry = dataSource.getIdRegistry();
+        this.relationValue = dataSource.getRelationValue();
+        this.replicaServers = dataSource.getReplicaServers();
+        this.graph = dataSource.getResidualGraph();
+
+        int serverCount = registry.getServerCount();
+        int taskCount = registry.getTaskCount();
+        List<Server> servers = dataSource.getServers();
+        serverNames = new String[servers.size()];
+        serverSlot = new int[serverCount + 1];
+        serverLoad = new int[serverCount + 1];
+        for(int k = 0; k < servers.size(); k++) {
+            Server server = servers.get(k);
+            int id = registry.getServerId(server.getServerName());
+            serverNames[k] = server.getServerName();
+            serverSlot[id] = server.getSlot();
+            serverLoad[id] = server.getLoad();
+        }
+
+        replicaOffset = new int[taskCount + 2];
+        int[] localCount = new int[serverCount + 1];
+        for(int task = 1; task <= taskCount; task++) {
+            replicaOffset[task + 1] = replicaOffset[task] + replicaServers[task].length;
+            for(int server : replicaServers[task])
+                localCount[server]++;
+        }
+        localTasks = new int[serverCount + 1][];
+        for(int server = 0; server <= serverCount; server++)
+            localTasks[server] = new int[localCount[server]];
+        for(int task = taskCount; task >= 1; task--) {
+            for(int server : replicaServers[task])
+                localTasks[server][--localCount[server]] = task;
+        }
+
+        Set<String> taskSet = dataSource.getTaskSet();
+        int[] tasks = new int[taskSet.size()];
+        int count = 0;
+        for(String task : taskSet)
+            tasks[count++] = registry.getTaskId(task);
+        Arrays.sort(tasks);
+        this.tasks = tasks;
+    }
+
+    public IdRegistry getRegistry()
+    {
+        return registry;
+    }
+
+    //任务之间的紧密度，数据源没有紧密度时为 null
+    public AffinityMatrix getRelationValue()
+    {
+        return relationValue;
+    }
+
+    public int getServerCount()
+    {
+        return registry.getServerCount();
+    }
+
+    public int getTaskCount()
+    {
+        return registry.getTaskCount();
+    }
+
+    public int getServerSlot(int server)
+    {
+        return serverSlot[server];
+    }
+
+    public int getServerLoad(int server)
+    {
+        return serverLoad[server];
+    }
+
+    /**
+     * 按数据源中的顺序新建服务器集合，每次调用得到的服务器均为新的对象，调度策略可以在其上写入分配结果
+     * @return
+     */
+    public List<Server> newServers()
+    {
+        List<Server> servers = new ArrayList<>(serverNames.length);
+        for(String name : serverNames) {
+            int id = registry.getServerId(name);
+            servers.add(new Server(name, serverLoad[id], serverSlot[id]));
+        }
+        return servers;
+    }
+
+    //残量图的副本，调度策略可以在其上推送流量
+    public ResidualGraph newResidualGraph()
+    {
+        return graph.copy();
+    }
+
+    //存放该任务数据的服务器编号，只读
+    public int[] getReplicaServers(int task)
+    {
+        return replicaServers[task];
+    }
+
+    //任务的第一个副本在所有副本中的位置，该任务的副本位于 [getReplicaOffset(task), getReplicaOffset(task + 1))
+    public int getReplicaOffset(int task)
+    {
+        return replicaOffset[task];
+    }
+
+    //所有任务的副本总数
+    public int getReplicaCount()
+    {
+        return replicaOffset[replicaOffset.length - 1];
+    }
+
+    //数据存放在该服务器上的任务编号，只读
+    public int[] getLocalTasks(int server)
+    {
+        return localTasks[server];
+    }
+
+    //需要分配的任务编号，按编号升序，只读
+    public int[] getTasks()
+    {
+        return tasks;
+    }
+
+    //任务的数据是否存放在该服务器上
+    public boolean isLocal(int task, int server)
+    {
+        for(int s : replicaServers[task]) {
+            if(s == server)
+                return true;
+        }
+        return false;
+    }
+}
@@ -5,152 +5,171 @@ import java.util.*;
  *  服务器上，因此采用每次选取可以执行最大任务量的服务器来进行分配任务，直到该服务器达到最大负载时再去
  *  选择另一个服务器。每个服务器的最大负载的判定规则是 min{server.slot, 与该服务器相关联的任务数目}
  */
-public class CouplingSchedule
+public class CouplingSchedule implements Scheduler
 {
-    //保存当前经过的路径，即流
-    private List<Edge> path = new ArrayList<>();
+    //保证本地性的初始分配所采用的求解方式。调度过程中的可变状态均保存在每次调用新建的 ScheduleContext 中
+    private final LocalityEngine engine;
 
-    //key:服务器 value:服务器最多可以执行的任务数
-    private Map<String,Integer> serverAbility = new HashMap<>();
+    //调度过程的监听器
+    private final ScheduleListener listener;
 
-    //key:服务器名  value:该服务器的 slot 数目
-    private Map<String,Integer> serverSlot = new HashMap<>();
+    public CouplingSchedule()
+    {
+        this(LocalityEngine.AUGMENT_PATH);
+    }
+
+    public CouplingSchedule(LocalityEngine engine)
+    {
+        this(engine, ScheduleListener.NONE);
+    }
+
+    public CouplingSchedule(LocalityEngine engine, ScheduleListener listener)
+    {
+        this.engine = engine;
+        this.listener = listener;
+    }
 
-    //key:任务  value:为该任务分配的服务器
-    private Map<String, String> allocatedTask = new HashMap<>();
+    @Override
+    public Assignment schedule(ClusterModel model)
+    {
+        return Assignment.fromServers(model, getTaskAllocation(model));
+    }
+
+    public List<Server> getTaskAllocation(DataSource ds)
+    {
+        return getTaskAllocation(new ClusterModel(ds));
+    }
 
     /**
      * 对任务进行初始分配，保证本地性
+     * @param model : 集群模型
      * @return
      */
-    public List<Server> getTaskAllocation(DataSource ds)
+    public List<Server> getTaskAllocation(ClusterModel model)
     {
-        List<Server> servers = ds.getServers();
+        ScheduleContext context = new ScheduleContext(model, listener);
 
-        //key:服务器  value:当前服务器所引用到的任务数目
-        Map<String, Set<String>> preferedTaskMap = ds.getPreferedTasks();
+        List<Server> servers = context.getServers();
 
-        //key:路径  value:该路径对应的边对象
-        Map<String, Edge> edges = ds.getEdges();
+        AbilityBucketQueue serverAbility = context.getServerAbility();
 
-        //此次需要分配的任务集合
-        Set<String> taskSet = ds.getTaskSet();
+        //取服务器可用的 slot 数目与其引用的任务数目的最小值作为当前服务器的最大执行能力
+        for(int s = 1; s <= model.getServerCount(); s++)
+            serverAbility.set(s, Math.min(context.getLocalTaskCount(s), context.getServerSlot(s)));
+
+        long start = listener.startPhase();
+        if(engine == LocalityEngine.AUGMENT_PATH)
+            allocateByAugmentPath(context);
+        else
+            allocateByEngine(context);
+        listener.endPhase(ScheduleListener.Phase.LOCALITY, start);
+
+        //将最终结果写会服务器
+        start = listener.startPhase();
+        updateServers(servers, context.getAllocatedTasksByServer());
+        listener.endPhase(ScheduleListener.Phase.WRITE_BACK, start);
 
-        int totalSlot = 0;
-        for(Server s : servers){
-            //取服务器可用的 slot 数目与其引用的任务数目的最小值作为当前服务器的最大执行能力
-            int ability = Math.min(preferedTaskMap.get(s.getServerName()).size(), s.getSlot());
-            serverAbility.put(s.getServerName(), ability);
-            serverSlot.put(s.getServerName(), s.getSlot());
-            totalSlot += s.getSlot();
+        //如果任务没有全部被分配，此时需要进行二次分配
+        if(context.getPendingCount() > 0) {
+            start = listener.startPhase();
+            listener.onFallback(context.getPendingCount());
+            reAllocate(context);
+            listener.endPhase(ScheduleListener.Phase.REALLOCATE, start);
         }
-        System.out.println("totalSlot : " + totalSlot);
 
-        //获取最大执行能力的服务器
-        String maxAbilityServer = getMaxAbilityServer(serverAbility);
-        while(AugmentPath.hasAugmentPath(maxAbilityServer,"T", path, edges)){
+        return servers;
+    }
 
-            //每次先把最大负载服务器分配完成
-            if(serverAbility.get(maxAbilityServer) > 0){
+    /**
+     * 每次从最大执行能力的服务器出发寻找增广路径，直到该服务器达到最大负载时再去选择另一个服务器
+     * @param context ：本次调度的上下文
+     */
+    private void allocateByAugmentPath(ScheduleContext context)
+    {
+        ResidualGraph graph = context.getGraph();
+        AbilityBucketQueue serverAbility = context.getServerAbility();
 
-                for(Edge edge : path){
+        //保存当前经过的路径，即流
+        AugmentPath path = new AugmentPath(graph, listener);
 
-                    if(edge.getStart().startsWith("s")){
-                        String server = edge.getStart();
-                        String task = edge.getEnd();
+        //获取最大执行能力的服务器
+        int maxAbilityServer = serverAbility.getMax();
+        while(maxAbilityServer != -1 && path.hasAugmentPath(maxAbilityServer, graph.getSink())){
 
-                        //当前任务已经被分给其他服务器
-                        if(allocatedTask.containsKey(task)){
+            //每次先把最大负载服务器分配完成
+            if(serverAbility.get(maxAbilityServer) > 0){
 
-                            //获取先前分配给当前待处理任务的服务器
-                            String preServer = allocatedTask.get(task);
+                listener.onAugment(path.getLength());
+                for(int i = 0; i < path.getLength(); i++){
+                    int arc = path.getArc(i);
 
-                            //将该任务对应的先前服务器的流反向
-                            if(edges.containsKey(task + "->" + preServer))
-                                edges.remove(task + "->" + preServer);
-                            Edge e = new Edge(preServer, task);
-                            edges.put(e.getPath(), e);
-                        }
+                    //当前任务若已经被分给其他服务器，路径中的下一条边即为 t->preServer，其反向由推送流量完成
+                    if(graph.isServer(graph.getTail(arc))){
+                        int server = graph.getTail(arc);
+                        int taskId = graph.getTaskId(graph.getHead(arc));
 
                         //将其他涉及到此任务的服务器进行更新，更新与此任务相关的服务器的引用任务集合。如将t1分配给了s1后：
                         //若服务器s2和s3均引用了t1，此时将t1从s2和s3的引用服务器集合中移除并更新s2和s3的最大执行能力。
-                        updateGraph(task, server, serverAbility, serverSlot, preferedTaskMap);
+                        updateGraph(taskId, server, context);
 
                         //任务分配
-                        allocatedTask.put(task,server);
+                        context.assign(taskId, server);
 
                         //将此任务从待分配任务集合中移除
-                        if(taskSet.contains(task))
-                            taskSet.remove(task);
+                        context.removePending(taskId);
 
                         //更新当前服务器的最大执行能力
-                        if(serverAbility.get(server) > 0)
-                            serverAbility.put(server,serverAbility.get(server) - 1);
+                        serverAbility.decrease(server);
                     }
-                    //从原有边信息中移除 path 中当前处理的边信息
-                    String key = edge.getPath();
-                    if(edges.containsKey(key))
-                        edges.remove(key);
-
-                    //加入当前处理边的的反向边，权值与当前处理边的权值一致
-                    Edge reverseEdge = new Edge(edge.getEnd(), edge.getStart());
-                    edges.put(reverseEdge.getPath(), reverseEdge);
+                    //将 path 中当前处理的边原地反向
+                    graph.push(arc, 1);
 
                     //重新获取最大执行能力的服务器
                     if(serverAbility.get(maxAbilityServer) == 0){
-                        maxAbilityServer = getMaxAbilityServer(serverAbility);
+                        maxAbilityServer = serverAbility.getMax();
                     }
                 }
             }
             if(serverAbility.get(maxAbilityServer) == 0)
                 break;
-            path.clear();
         }
-        //将最终结果写会服务器
-        updateServers(servers, allocatedTask);
-
-        //如果任务没有全部被分配，此时需要进行二次分配
-        if(taskSet.size() > 0)
-            reAllocate(servers, taskSet);
-
-        return servers;
     }
 
     /**
-     * 用于获取最大执行能力的服务器
-     * @param abilityMap：key->服务器名   value->服务器最多可以执行的任务数
-     * @return
+     * 利用 HopcroftKarp 或 MaxFlow 一次求出满足 slot 限制的最大本地任务分配，两者都逐层放开 slot，得到的分配相同程度地均衡。
+     * 分配结果按任务依次写入上下文，与增广路径方式相同地更新本地任务列表和服务器的最大执行能力
+     * @param context ：本次调度的上下文
      */
-    public String getMaxAbilityServer(Map<String,Integer> abilityMap)
+    private void allocateByEngine(ScheduleContext context)
     {
-        int maxNum = Integer.MIN_VALUE;
-        String maxServer = null;
-        for(String server : abilityMap.keySet()){
-            if(abilityMap.get(server) > maxNum){
-                maxNum = abilityMap.get(server);
-                maxServer = server;
+        ResidualGraph graph = context.getGraph();
+        AbilityBucketQueue serverAbility = context.getServerAbility();
+
+        HopcroftKarp matching = null;
+        if(engine == LocalityEngine.HOPCROFT_KARP) {
+            matching = new HopcroftKarp(graph);
+            matching.solve();
+        }
+        else
+            new MaxFlow(graph).solveBalanced();
+
+        for(int t = 1; t <= graph.getTaskCount(); t++) {
+            int taskNode = graph.getServerCount() + t;
+            int serverNode = matching != null ? matching.getServer(taskNode) : graph.getAssignedServer(taskNode);
+            if(serverNode != -1) {
+                updateGraph(t, serverNode, context);
+                context.assign(t, serverNode);
+                context.removePending(t);
+                serverAbility.decrease(serverNode);
             }
         }
-        return maxServer;
     }
 
     /**
      * @param serverList : 服务器集合
-     * @param allocatedTask ： key:任务  value:分配给该任务的服务器
+     * @param allocated ： key:服务器  value:分配给该服务器的任务集合
      */
-    private void updateServers(List<Server> serverList, Map<String, String> allocatedTask) {
-
-        Map<String, Set<String>> allocated = new HashMap<>();
-        for(String task : allocatedTask.keySet()){
-            String serverName = allocatedTask.get(task);
-            if(allocated.containsKey(serverName))
-                allocated.get(serverName).add(task);
-            else{
-                Set<String> set = new HashSet<>();
-                set.add(task);
-                allocated.put(serverName, set);
-            }
-        }
+    private void updateServers(List<Server> serverList, Map<String, Set<String>> allocated) {
 
         for(Server server : serverList){
             String serverName = server.getServerName();
@@ -161,29 +180,28 @@ public class CouplingSchedule
 
     /**
      * 当前任务分配后，需要更新服务器的最大执行任务量
-     * @param task ： 当前待处理的任务
-     * @param server ：当前预分配给当前task的服务器
-     * @param serverAbilityMap ：key:服务器  value:服务器对应的最大执行能力
-     * @param serverSlotMap ：key:服务器  value:服务器对应的slot数目
-     * @param preferedTaskMap ：key:服务器  value:服务器引用的本地任务列表
+     * @param task ： 当前待处理的任务编号
+     * @param server ：当前预分配给当前task的服务器编号
+     * @param context ：本次调度的上下文，其中记录了服务器的最大执行能力、slot数目和本地任务列表
      */
-    private void updateGraph(String task,  String server, Map<String, Integer> serverAbilityMap,
-                             Map<String,Integer> serverSlotMap, Map<String, Set<String>> preferedTaskMap){
+    private void updateGraph(int task, int server, ScheduleContext context){
 
-        for(String s : preferedTaskMap.keySet()){
-            if(s.equals(server))
+        AbilityBucketQueue serverAbility = context.getServerAbility();
+
+        //只有存放该任务数据的服务器的本地任务列表中可能包含该任务
+        for(int serverId : context.getReplicaServers(task)){
+            if(serverId == server)
                 continue;
 
             //如果当前服务器的本地任务列表包含需要处理的任务，则从服务器的本地任务列表中移除该任务
-            if(preferedTaskMap.get(s).contains(task)){
+            if(context.removeLocalTask(task, serverId)){
 
-                preferedTaskMap.get(s).remove(task);
                 //将任务从服务器的本地任务列表删除后，可能会导致当前服务器的最大执行能力发生变化，因此需要进行判断并更新
-                int slot = serverSlotMap.get(s);
-                int preferedTaskCount = preferedTaskMap.get(s).size();
+                int slot = context.getServerSlot(serverId);
+                int preferedTaskCount = context.getLocalTaskCount(serverId);
                 int minNum = slot > preferedTaskCount ? preferedTaskCount : slot;
-                int ability = serverAbilityMap.get(s) > minNum ? minNum : serverAbilityMap.get(s);
-                serverAbilityMap.put(s, ability);
+                if(serverAbility.get(serverId) > minNum)
+                    serverAbility.set(serverId, minNum);
             }
         }
     }
@@ -191,14 +209,17 @@ public class CouplingSchedule
     /**
      * 按照上述规则进行分配后，对于有些任务可能会造成无法被分配，此时需要对这些任务进行重新的分配，分配的原则为每次选择剩余 slot
      * 数目最多的服务器进行分配
-     * @param servers : 服务器集合
-     * @param unAllocateTask : 未分配的任务
+     * @param context : 本次调度的上下文，其中待分配的任务即为未分配的任务
      */
-    private void reAllocate(List<Server> servers, Set<String> unAllocateTask){
+    private void reAllocate(ScheduleContext context){
 
-        for(String task : unAllocateTask){
+        List<Server> servers = context.getServers();
+        IdRegistry registry = context.getRegistry();
+        for(int task = 1; task <= registry.getTaskCount(); task++){
+            if(!context.removePending(task))
+                continue;
             Server server = getMaxEmptyExcutorServer(servers);
-            server.addTask(task);
+            server.addTask(registry.getTaskName(task));
         }
     }
 
@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -14,6 +16,9 @@ public class DataSource
     //副本数量，即每个任务task有三个数据源
     private static final int duplicationCount = 2;
 
+    //任务之间紧密度的最大值，紧密度取值为 0..MAX_RELATION_VALUE
+    public static final int MAX_RELATION_VALUE = 9;
+
     //Map的Key为路径，Value为对应的边，如"S -> V1"这条路径代表<S,V1>
     private Map<String,Edge> edges = new HashMap<>();
 
@@ -26,13 +31,60 @@ public class DataSource
     //服务器集合
     private List<Server> serverList = new ArrayList<>();
 
-    //任务之间的紧密度（relationValue[1][2]表示任务1和任务2的紧密度），自身和自身的紧密度为0
-    private int[][] relationValue = null;
+    //任务之间的紧密度（relationValue.get(1, 2)表示任务1和任务2的紧密度），自身和自身的紧密度为0
+    private AffinityMatrix relationValue = null;
+
+    //每个任务随机产生紧密度的相关任务数目，大于 0 时采用稀疏存储，为 0 时产生所有任务对之间的紧密度
+    private int affinityDegree = 0;
+
+    //服务器、任务名称与整数编号之间的映射，在构建数据源时注册
+    private IdRegistry registry = new IdRegistry();
+
+    //replicaServers[任务编号] 为存放该任务数据的服务器编号，即 preferedTasks 的倒排索引，由 preferedTasks 构建后只读
+    private int[][] replicaServers = null;
+
+    //由 edges 构建的残量图，各调度策略使用它的副本。多个调度可能同时读取同一个数据源，因此构建过程需要同步
+    private ResidualGraph residualGraph = null;
 
     public Map<String, Edge> getEdges() {
         return new HashMap<>(edges);
     }
 
+    public synchronized ResidualGraph getResidualGraph() {
+        if(residualGraph == null)
+            residualGraph = ResidualGraph.fromEdges(edges, serverList, registry);
+        return residualGraph.copy();
+    }
+
+    /**
+     * 每个任务的数据副本所在的服务器，多个调度共用同一个索引，调用者不能修改
+     * @return replicaServers[任务编号] 为服务器编号数组
+     */
+    public synchronized int[][] getReplicaServers() {
+        if(replicaServers == null) {
+            int[] count = new int[registry.getTaskCount() + 1];
+            for(Set<String> tasks : preferedTasks.values())
+                for(String task : tasks)
+                    count[registry.getTaskId(task)]++;
+            int[][] index = new int[registry.getTaskCount() + 1][];
+            for(int task = 0; task < index.length; task++)
+                index[task] = new int[count[task]];
+            for(Map.Entry<String, Set<String>> entry : preferedTasks.entrySet()) {
+                int server = registry.getServerId(entry.getKey());
+                for(String task : entry.getValue()) {
+                    int taskId = registry.getTaskId(task);
+                    index[taskId][--count[taskId]] = server;
+                }
+            }
+            replicaServers = index;
+        }
+        return replicaServers;
+    }
+
+    public IdRegistry getIdRegistry() {
+        return registry;
+    }
+
     public int getTaskCount() {
         return taskCount;
     }
@@ -58,74 +110,87 @@ public class DataSource
         initGraph();
     }
 
-    public int[][] getRelationValue() {
-        return relationValue;
+    /**
+     * 任务数目很大时，每个任务只与 affinityDegree 个随机选取的任务之间具有大于 0 的紧密度，紧密度采用稀疏存储
+     * @param serverCount : 服务器数量
+     * @param taskCount : 任务数量
+     * @param affinityDegree : 每个任务随机产生紧密度的相关任务数目
+     */
+    public DataSource(int serverCount, int taskCount, int affinityDegree) {
+        this.serverCount = serverCount;
+        this.taskCount = taskCount;
+        this.affinityDegree = affinityDegree;
+        initGraph();
     }
 
-    //Map的Key为路径，Value为对应的边，如 "S->V1" 这条路径代表就代表 <S,V1> 这条边
-    public void initGraph() {
+    /**
+     * 使用已有的紧密度矩阵（例如 MappedAffinityMatrix 映射的矩阵文件）构建数据源，不再随机产生紧密度
+     * @param serverCount : 服务器数量
+     * @param taskCount : 任务数量
+     * @param relationValue : 任务之间的紧密度，任务数目不能少于 taskCount
+     */
+    public DataSource(int serverCount, int taskCount, AffinityMatrix relationValue) {
+        if(relationValue.getTaskCount() < taskCount)
+            throw new IllegalArgumentException("紧密度矩阵只有 " + relationValue.getTaskCount() + " 个任务，少于任务数量 " + taskCount);
+        this.serverCount = serverCount;
+        this.taskCount = taskCount;
+        this.relationValue = relationValue;
+        initGraph();
+    }
 
-        int maxTaskCount = 0;
-        //初始化服务器集合
-        for(int i=1; i<=serverCount; i++) {
-            Server server = new Server("s" + i,0);
-            maxTaskCount += server.getSlot();
-            serverList.add(server);
-        }
+    //由 WorkloadGenerator 或快照填充数据，见 init
+    DataSource() {
+    }
 
-        List<Integer> serverNumList = new ArrayList<>();
-        Random random = new Random();
-
-        taskCount = maxTaskCount > taskCount ? taskCount : maxTaskCount;
-        System.out.println("合理化的任务数（这里假设任务最多按照服务器集合的slot总数）: " + taskCount);
-
-        //随机产生任务之间的紧密度,值越高紧密度越大（0-9）
-        relationValue = new int[taskCount][taskCount+1];
-        int value = 0;
-       // System.out.println("任务之间的紧密值：");
-        for(int i=1; i<taskCount; i++)
-            for(int j=i+1; j<=taskCount; j++){
-                value = new Random().nextInt(10);
-                relationValue[i][j] = value;
-                //System.out.print(relationValue[i][j] + "(" + i + "," + j +")" + "   ");
-                System.out.print(relationValue[i][j] + "\t");
-                if(j==taskCount)
-                    System.out.println();
-            }
+    //由快照恢复数据源，见 DataSourceSnapshot
+    DataSource(IdRegistry registry, List<Server> serverList, Set<String> taskSet, Map<String,Set<String>> preferedTasks,
+               Map<String,Edge> edges, int taskCount, AffinityMatrix relationValue) {
+        init(registry, serverList, taskSet, preferedTasks, edges, taskCount, relationValue);
+    }
 
-        //对于每个任务，都会分配3个服务器给其作为数据放置点
-        for(int i = 1; i <= taskCount; i++) {
-            String task = "t" + i;
-            taskSet.add(task);
-            //在服务器中随机进行选取 duplicationCount 个服务器作为其数据放置点
-            while(serverNumList.size() < duplicationCount) {
-                int serverNum = random.nextInt(serverCount) + 1;
-                if(!serverNumList.contains(serverNum))
-                    serverNumList.add(serverNum);
-            }
+    void init(IdRegistry registry, List<Server> serverList, Set<String> taskSet, Map<String,Set<String>> preferedTasks,
+              Map<String,Edge> edges, int taskCount, AffinityMatrix relationValue) {
+        this.registry = registry;
+        this.serverList = serverList;
+        this.taskSet = taskSet;
+        this.preferedTasks = preferedTasks;
+        this.edges = edges;
+        this.serverCount = serverList.size();
+        this.taskCount = taskCount;
+        this.relationValue = relationValue;
+    }
 
-            //构建边的信息并将其放入Map中，使得路径可以对应与当前的边
-            for(Integer num : serverNumList) {
-                String server = "s" + num;
-                //本地任务，因此容量(capacity)最大值为 1, 初始残留值为 capacity 值
-                Edge edge = new Edge(server, task);
-                //加入到路径信息中
-                edges.put(edge.getPath(), edge);
-
-                //初始化任务存放集合列表
-                if(preferedTasks.containsKey(server))
-                    preferedTasks.get(server).add(task);
-                else{
-                    Set<String> taskSet = new HashSet<>();
-                    taskSet.add(task);
-                    preferedTasks.put(server,taskSet);
-                }
-            }
-            //增加一个终点T，即每个 task 与 T 都有一条边
-            Edge edge =  new Edge(task, "T");
-            edges.put(edge.getPath(), edge);
-            serverNumList.clear();
-        }
+    /**
+     * 把数据源保存为二进制快照，之后可以通过 load 原样恢复
+     * @param file : 快照文件
+     * @throws IOException
+     */
+    public void save(Path file) throws IOException {
+        DataSourceSnapshot.save(this, file);
+    }
+
+    /**
+     * 从二进制快照恢复数据源
+     * @param file : 快照文件
+     * @return
+     * @throws IOException
+     */
+    public static DataSource load(Path file) throws IOException {
+        return DataSourceSnapshot.load(file);
+    }
+
+    public AffinityMatrix getRelationValue() {
+        return relationValue;
+    }
+
+    //Map的Key为路径，Value为对应的边，如 "S->V1" 这条路径代表就代表 <S,V1> 这条边
+    //数据由 WorkloadGenerator 以默认种子生成，每次相同；需要其他数据时直接使用 WorkloadGenerator 并指定种子
+    public void initGraph() {
+        new WorkloadGenerator(serverCount, taskCount)
+                .setReplicationFactor(duplicationCount)
+                .setAffinityDegree(affinityDegree)
+                .setRelationValue(relationValue)
+                .generate(this);
     }
 
     public void TestData2() {
@@ -227,10 +292,15 @@ public class DataSource
         edges.put(edge39.getPath(),edge39);
         edges.put(edge40.getPath(),edge40);
 
-        serverList.add(new Server("s1", 0));
-        serverList.add(new Server("s2", 0));
-        serverList.add(new Server("s3", 0));
-        serverList.add(new Server("s4", 0));
+        serverList.add(new Server("s1", 0, 3));
+        serverList.add(new Server("s2", 0, 3));
+        serverList.add(new Server("s3", 0, 3));
+        serverList.add(new Server("s4", 0, 3));
+
+        for(int i = 1; i <= 4; i++)
+            registry.registerServer("s" + i);
+        for(int i = 1; i <= 10; i++)
+            registry.registerTask("t" + i);
     }
 
 }
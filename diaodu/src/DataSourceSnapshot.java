@@ -0,0 +1,395 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * 数据源的二进制快照：保存服务器及其 slot、副本放置（preferedTasks）、边和任务之间的紧密度，
+ * 用于重复使用同一组数据进行测试，或重现某次调度时的集群状态。
+ * 服务器和任务在文件中只保存一次名称，其余部分均使用 IdRegistry 中的编号，紧密度矩阵按原有的存储方式整块读写。
+ *
+ * 文件格式（大端）：
+ * 魔数、格式版本、服务器数目 S、任务数目 T、数据源的任务数量
+ * 服务器名 1..S、任务名 1..T（长度 + UTF-8）
+ * 服务器：编号、负载、slot、已分配的任务编号
+ * 待分配的任务编号
+ * 副本放置：服务器编号、该服务器上存放数据的任务编号
+ * 边：起点和终点的结点编号，0 为终点 T，1..S 为服务器，S+1..S+T 为任务
+ * 紧密度矩阵：类型，之后为对应存储方式的数组
+ */
+public class DataSourceSnapshot
+{
+    public static final int MAGIC = 0x44534E50;
+
+    public static final int VERSION = 1;
+
+    //紧密度矩阵的存储方式
+    private static final byte AFFINITY_NONE = 0;
+    private static final byte AFFINITY_PACKED = 1;
+    private static final byte AFFINITY_SPARSE = 2;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * 保存数据源
+     * @param ds : 数据源
+     * @param file : 快照文件
+     * @throws IOException
+     */
+    public static void save(DataSource ds, Path file) throws IOException
+    {
+        IdRegistry registry = ds.getIdRegistry();
+        int serverCount = registry.getServerCount();
+        int taskCount = registry.getTaskCount();
+        try(Output out = new Output(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE))) {
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(serverCount);
+            out.putInt(taskCount);
+            out.putInt(ds.getTaskCount());
+            for(int i = 1; i <= serverCount; i++)
+                out.putString(registry.getServerName(i));
+            for(int i = 1; i <= taskCount; i++)
+                out.putString(registry.getTaskName(i));
+
+            List<Server> servers = ds.getServers();
+            out.putInt(servers.size());
+            for(Server server : servers) {
+                out.putInt(registry.getServerId(server.getServerName()));
+                out.putInt(server.getLoad());
+                out.putInt(server.getSlot());
+                out.putInt(server.getAllocatedTask().size());
+                for(String task : server.getAllocatedTask())
+                    out.putInt(registry.getTaskId(task));
+            }
+
+            Set<String> taskSet = ds.getTaskSet();
+            out.putInt(taskSet.size());
+            for(String task : taskSet)
+                out.putInt(registry.getTaskId(task));
+
+            Map<String, Set<String>> preferedTasks = ds.getPreferedTasks();
+            out.putInt(preferedTasks.size());
+            for(Map.Entry<String, Set<String>> entry : preferedTasks.entrySet()) {
+                out.putInt(registry.getServerId(entry.getKey()));
+                out.putInt(entry.getValue().size());
+                for(String task : entry.getValue())
+                    out.putInt(registry.getTaskId(task));
+            }
+
+            Map<String, Edge> edges = ds.getEdges();
+            out.putInt(edges.size());
+            for(Edge edge : edges.values()) {
+                out.putInt(getNode(registry, edge.getStart()));
+                out.putInt(getNode(registry, edge.getEnd()));
+            }
+
+            putAffinity(out, ds.getRelationValue());
+        }
+    }
+
+    /**
+     * 恢复数据源
+     * @param file : 快照文件
+     * @return
+     * @throws IOException 文件格式不正确
+     */
+    public static DataSource load(Path file) throws IOException
+    {
+        try(Input in = new Input(FileChannel.open(file, StandardOpenOption.READ))) {
+            if(in.getInt() != MAGIC)
+                throw new IOException(file + " 不是数据源快照文件");
+            int version = in.getInt();
+            if(version != VERSION)
+                throw new IOException(file + " 的格式版本 " + version + " 不受支持");
+            int serverCount = in.getInt();
+            int taskCount = in.getInt();
+            int dataSourceTaskCount = in.getInt();
+
+            IdRegistry registry = new IdRegistry();
+            for(int i = 1; i <= serverCount; i++)
+                registry.registerServer(in.getString());
+            for(int i = 1; i <= taskCount; i++)
+                registry.registerTask(in.getString());
+
+            int count = in.getInt();
+            List<Server> servers = new ArrayList<>(count);
+            for(int k = 0; k < count; k++) {
+                String name = registry.getServerName(in.getInt());
+                int load = in.getInt();
+                Server server = new Server(name, load, in.getInt());
+                int allocatedCount = in.getInt();
+                for(int t = 0; t < allocatedCount; t++)
+                    server.addTask(registry.getTaskName(in.getInt()));
+                servers.add(server);
+            }
+
+            count = in.getInt();
+            Set<String> taskSet = new HashSet<>(count * 2);
+            for(int k = 0; k < count; k++)
+                taskSet.add(registry.getTaskName(in.getInt()));
+
+            count = in.getInt();
+            Map<String, Set<String>> preferedTasks = new HashMap<>(count * 2);
+            for(int k = 0; k < count; k++) {
+                String server = registry.getServerName(in.getInt());
+                int taskSize = in.getInt();
+                Set<String> tasks = new HashSet<>(taskSize * 2);
+                for(int t = 0; t < taskSize; t++)
+                    tasks.add(registry.getTaskName(in.getInt()));
+                preferedTasks.put(server, tasks);
+            }
+
+            count = in.getInt();
+            Map<String, Edge> edges = new HashMap<>(count * 2);
+            for(int k = 0; k < count; k++) {
+                Edge edge = new Edge(getName(registry, in.getInt()), getName(registry, in.getInt()));
+                edges.put(edge.getPath(), edge);
+            }
+
+            AffinityMatrix relationValue = getAffinity(in);
+            return new DataSource(registry, servers, taskSet, preferedTasks, edges, dataSourceTaskCount, relationValue);
+        }
+    }
+
+    //结点名对应的编号：0 为终点 T，1..S 为服务器，S+1..S+T 为任务
+    private static int getNode(IdRegistry registry, String name) throws IOException
+    {
+        if(name.equals("T"))
+            return 0;
+        int id = registry.getServerId(name);
+        if(id != -1)
+            return id;
+        id = registry.getTaskId(name);
+        if(id != -1)
+            return registry.getServerCount() + id;
+        throw new IOException("边的结点 " + name + " 不是已注册的服务器或任务");
+    }
+
+    private static String getName(IdRegistry registry, int node)
+    {
+        if(node == 0)
+            return "T";
+        if(node <= registry.getServerCount())
+            return registry.getServerName(node);
+        return registry.getTaskName(node - registry.getServerCount());
+    }
+
+    //稀疏矩阵按压缩的邻接数组保存，其余存储方式均按上三角压缩格式保存
+    private static void putAffinity(Output out, AffinityMatrix matrix) throws IOException
+    {
+        if(matrix == null) {
+            out.putByte(AFFINITY_NONE);
+            return;
+        }
+        int taskCount = matrix.getTaskCount();
+        if(matrix instanceof SparseAffinityMatrix) {
+            SparseAffinityMatrix sparse = (SparseAffinityMatrix) matrix;
+            out.putByte(AFFINITY_SPARSE);
+            out.putInt(taskCount);
+            out.putInt(sparse.getNeighbors().length);
+            out.putInts(sparse.getRowBegin());
+            out.putInts(sparse.getNeighbors());
+            out.putBytes(sparse.getValues());
+            return;
+        }
+        out.putByte(AFFINITY_PACKED);
+        out.putInt(taskCount);
+        if(matrix instanceof PackedAffinityMatrix) {
+            for(byte[] page : ((PackedAffinityMatrix) matrix).getPages())
+                out.putBytes(page);
+            return;
+        }
+        for(int i = 1; i < taskCount; i++)
+            for(int j = i + 1; j <= taskCount; j++)
+                out.putByte((byte) matrix.get(i, j));
+    }
+
+    private static AffinityMatrix getAffinity(Input in) throws IOException
+    {
+        byte type = in.getByte();
+        if(type == AFFINITY_NONE)
+            return null;
+        int taskCount = in.getInt();
+        if(type == AFFINITY_PACKED) {
+            PackedAffinityMatrix matrix = new PackedAffinityMatrix(taskCount);
+            for(byte[] page : matrix.getPages())
+                in.getBytes(page);
+            return matrix;
+        }
+        if(type == AFFINITY_SPARSE) {
+            int size = in.getInt();
+            int[] rowBegin = new int[taskCount + 2];
+            int[] neighbor = new int[size];
+            byte[] value = new byte[size];
+            in.getInts(rowBegin);
+            in.getInts(neighbor);
+            in.getBytes(value);
+            return new SparseAffinityMatrix(taskCount, rowBegin, neighbor, value);
+        }
+        throw new IOException("未知的紧密度矩阵类型 " + type);
+    }
+
+    /**
+     * 带缓冲的写入，大数组不经过缓冲区直接写入文件
+     */
+    private static class Output implements AutoCloseable
+    {
+        private final FileChannel channel;
+
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private Output(FileChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        private void ensure(int size) throws IOException
+        {
+            if(buffer.remaining() < size)
+                flush();
+        }
+
+        private void flush() throws IOException
+        {
+            buffer.flip();
+            while(buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        private void putByte(byte value) throws IOException
+        {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        private void putInt(int value) throws IOException
+        {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        private void putString(String value) throws IOException
+        {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            putBytes(bytes);
+        }
+
+        private void putInts(int[] values) throws IOException
+        {
+            for(int offset = 0; offset < values.length; ) {
+                ensure(4);
+                int length = Math.min(values.length - offset, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, offset, length);
+                buffer.position(buffer.position() + length * 4);
+                offset += length;
+            }
+        }
+
+        private void putBytes(byte[] values) throws IOException
+        {
+            if(values.length <= buffer.remaining()) {
+                buffer.put(values);
+                return;
+            }
+            flush();
+            ByteBuffer wrapped = ByteBuffer.wrap(values);
+            while(wrapped.hasRemaining())
+                channel.write(wrapped);
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            try {
+                flush();
+            }
+            finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * 带缓冲的读取，大数组直接从文件读入
+     */
+    private static class Input implements AutoCloseable
+    {
+        private final FileChannel channel;
+
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        private Input(FileChannel channel)
+        {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        //保证缓冲区中至少有 size 个字节
+        private void fill(int size) throws IOException
+        {
+            if(buffer.remaining() >= size)
+                return;
+            buffer.compact();
+            while(buffer.position() < size) {
+                if(channel.read(buffer) < 0)
+                    throw new EOFException("快照文件不完整");
+            }
+            buffer.flip();
+        }
+
+        private byte getByte() throws IOException
+        {
+            fill(1);
+            return buffer.get();
+        }
+
+        private int getInt() throws IOException
+        {
+            fill(4);
+            return buffer.getInt();
+        }
+
+        private String getString() throws IOException
+        {
+            byte[] bytes = new byte[getInt()];
+            getBytes(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void getInts(int[] values) throws IOException
+        {
+            for(int offset = 0; offset < values.length; ) {
+                fill(4);
+                int length = Math.min(values.length - offset, buffer.remaining() / 4);
+                buffer.asIntBuffer().get(values, offset, length);
+                buffer.position(buffer.position() + length * 4);
+                offset += length;
+            }
+        }
+
+        private void getBytes(byte[] values) throws IOException
+        {
+            int offset = Math.min(values.length, buffer.remaining());
+            buffer.get(values, 0, offset);
+            ByteBuffer wrapped = ByteBuffer.wrap(values, offset, values.length - offset);
+            while(wrapped.hasRemaining()) {
+                if(channel.read(wrapped) < 0)
+                    throw new EOFException("快照文件不完整");
+            }
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+    }
+}
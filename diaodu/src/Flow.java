@@ -0,0 +1,68 @@
+/**
+ * 候选流：从服务器出发到终点的一条路径，以及按照该路径分配任务时的费用值。
+ * 费用值计算一次后缓存在流中，只有当流中任务的分配情况发生变化（版本号改变）时才重新计算
+ */
+public class Flow implements Comparable<Flow>
+{
+    //路径上经过的边
+    private final int[] arcs;
+
+    //按照当前流分配任务所节省的费用
+    private int value = 0;
+
+    //当前流中已被分配的任务从原服务器回撤时损失的费用
+    private int loss = 0;
+
+    //计算费用值时流中任务的分配版本
+    private int version = -1;
+
+    public Flow(int[] arcs)
+    {
+        this.arcs = arcs;
+    }
+
+    public int[] getArcs()
+    {
+        return arcs;
+    }
+
+    public int getValue()
+    {
+        return value;
+    }
+
+    public int getLoss()
+    {
+        return loss;
+    }
+
+    public int getVersion()
+    {
+        return version;
+    }
+
+    //采用当前流所带来的净收益
+    public int getScore()
+    {
+        return value - loss;
+    }
+
+    /**
+     * 更新缓存的费用值
+     * @param value : 按照当前流分配任务所节省的费用
+     * @param loss : 已被分配的任务回撤时损失的费用
+     * @param version : 计算费用值时流中任务的分配版本
+     */
+    public void setScore(int value, int loss, int version)
+    {
+        this.value = value;
+        this.loss = loss;
+        this.version = version;
+    }
+
+    @Override
+    public int compareTo(Flow other)
+    {
+        return Integer.compare(getScore(), other.getScore());
+    }
+}
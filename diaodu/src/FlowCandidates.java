@@ -0,0 +1,169 @@
+import java.util.*;
+
+/**
+ * 候选流的有界枚举：从起点出发深度优先枚举到终点的简单路径，只保留得分最高的 maxCount 条，
+ * 搜索步数或时间超出预算后提前停止，之后用优先队列按得分从高到低依次给出。
+ * 预算内枚举到的每条路径都会计算得分，因此保留的是预算内见到的得分最高的 maxCount 条，枚举的代价由步数预算决定。
+ * 每条流的得分只计算一次并缓存，取出时若流中任务的分配版本已经变化，则重新计算得分并放回队列（延迟更新），
+ * 不再在每次取流前对全部候选流重新排序。
+ * 因此给出的顺序只是近似地按当前得分从高到低：取出的流的得分总是最新的，并且不低于队列中其他流缓存的得分，
+ * 但其他过期的流的实际得分可能已经升高（例如其中的任务从原服务器被移走后回撤损失变小），它们会晚于应有的位置给出；
+ * 只有在得分只降不升时顺序才是严格的。保留哪 maxCount 条流也按枚举时的得分决定，之后不再补充。
+ * 枚举在第一次取候选流时才进行，占用的内存为 O(maxCount·路径长度 + 结点数)，与图的稠密程度无关
+ */
+public class FlowCandidates implements Iterator<Flow>
+{
+    /**
+     * 计算候选流的得分
+     */
+    public interface Scorer
+    {
+        //计算流的费用值并通过 Flow.setScore 写入流中
+        void score(Flow flow);
+
+        //流中任务当前的分配版本，与计算得分时的版本不同说明缓存的得分已经过期
+        int getVersion(int[] arcs);
+    }
+
+    private final ResidualGraph graph;
+
+    private final int start;
+
+    private final int end;
+
+    //保留的候选流数目上限
+    private final int maxCount;
+
+    //深度优先搜索最多检查的边数
+    private final long maxSteps;
+
+    //搜索开始的时间（System.nanoTime）与时间预算，用时超过预算时停止搜索，预算为 Long.MAX_VALUE 时不限制时间
+    private final long startTime;
+
+    private final long budgetNanos;
+
+    //计算一条流的得分，得分越高越优先
+    private final Scorer scorer;
+
+    //枚举结束时报告枚举的用时、访问的结点数和检查的边数
+    private final ScheduleListener listener;
+
+    //搜索时得分最低的候选流位于堆顶，便于淘汰
+    private PriorityQueue<Flow> heap = null;
+
+    //搜索完成后得分最高的候选流位于队首
+    private PriorityQueue<Flow> queue = null;
+
+    public FlowCandidates(ResidualGraph graph, int start, int end, int maxCount, long maxSteps, long budgetNanos,
+                          Scorer scorer)
+    {
+        this(graph, start, end, maxCount, maxSteps, budgetNanos, scorer, ScheduleListener.NONE);
+    }
+
+    public FlowCandidates(ResidualGraph graph, int start, int end, int maxCount, long maxSteps, long budgetNanos,
+                          Scorer scorer, ScheduleListener listener)
+    {
+        this.listener = listener;
+        this.graph = graph;
+        this.start = start;
+        this.end = end;
+        this.maxCount = maxCount;
+        this.maxSteps = maxSteps;
+        this.startTime = System.nanoTime();
+        this.budgetNanos = budgetNanos;
+        this.scorer = scorer;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        if(queue == null)
+            search();
+        return !queue.isEmpty();
+    }
+
+    /**
+     * 取出缓存得分最高并且未过期的候选流，过期的流重新计算得分后放回队列，顺序只是近似的，见类的说明
+     * @return
+     */
+    @Override
+    public Flow next()
+    {
+        if(!hasNext())
+            throw new NoSuchElementException();
+        while(true) {
+            Flow flow = queue.poll();
+            if(scorer.getVersion(flow.getArcs()) == flow.getVersion())
+                return flow;
+            scorer.score(flow);
+            queue.add(flow);
+        }
+    }
+
+    /**
+     * 枚举从 start 到 end 的简单路径，回退时撤销结点的访问标记
+     */
+    private void search()
+    {
+        long begin = listener.startPhase();
+        int visitedNodes = 1;
+        heap = new PriorityQueue<>(Math.max(1, Math.min(maxCount, 1024)));
+        int nodeCount = graph.getNodeCount();
+        boolean[] visited = new boolean[nodeCount];
+        int[] path = new int[nodeCount];
+        int[] cursor = new int[nodeCount + 1];
+        int length = 0;
+        long steps = 0;
+
+        visited[start] = true;
+        cursor[0] = graph.liveBegin(start);
+        int node = start;
+        while(maxCount > 0) {
+            if(cursor[length] < graph.liveEnd(node)) {
+                //每检查 1024 条边判断一次是否超出预算
+                if(++steps > maxSteps || ((steps & 1023) == 0 && System.nanoTime() - startTime > budgetNanos))
+                    break;
+                int arc = graph.getLiveArc(cursor[length]++);
+                int head = graph.getHead(arc);
+                if(visited[head])
+                    continue;
+                path[length] = arc;
+                if(head == end) {
+                    offer(Arrays.copyOf(path, length + 1));
+                    //当前结点只有一条到终点的边，不再继续搜索
+                    cursor[length] = graph.liveEnd(node);
+                    continue;
+                }
+                visited[head] = true;
+                visitedNodes++;
+                length++;
+                cursor[length] = graph.liveBegin(head);
+                node = head;
+            }
+            else {
+                visited[node] = false;
+                if(length == 0)
+                    break;
+                node = graph.getTail(path[--length]);
+            }
+        }
+
+        queue = new PriorityQueue<>(Math.max(1, heap.size()), Collections.reverseOrder());
+        queue.addAll(heap);
+        heap = null;
+        listener.onSearch(visitedNodes, steps);
+        listener.endPhase(ScheduleListener.Phase.CANDIDATE_SEARCH, begin);
+    }
+
+    private void offer(int[] arcs)
+    {
+        Flow flow = new Flow(arcs);
+        scorer.score(flow);
+        if(heap.size() < maxCount)
+            heap.add(flow);
+        else if(flow.getScore() > heap.peek().getScore()) {
+            heap.poll();
+            heap.add(flow);
+        }
+    }
+}
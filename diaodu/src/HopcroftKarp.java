@@ -0,0 +1,288 @@
+import java.util.Arrays;
+
+/**
+ * Hopcroft-Karp 匹配引擎：在任务与服务器之间求一个保证本地性的最大匹配。
+ * 每个服务器按其 slot 数目拆成若干个副本，副本之间没有区别，因此不真正复制结点，而是用 load[s] < cap[s]
+ * 表示服务器 s 还有空闲的副本，用 serverTasks 记录占用每个副本的任务。
+ * 每个阶段先用 BFS 从所有未分配任务出发对图分层，再用迭代的 DFS 沿分层图找出多条互不相交的最短增广路径。
+ * 为了负载均衡，服务器的可用副本数从 1 开始逐层放开直到 slot 数目，每一层都求到最大匹配后再进入下一层，
+ * 因此任务总是优先分配给负载较低的服务器
+ */
+public class HopcroftKarp
+{
+    private static final int INF = Integer.MAX_VALUE;
+
+    private final ResidualGraph graph;
+
+    private final int serverCount;
+
+    private final int taskCount;
+
+    //服务器的 slot 数目，即 S->服务器 边的容量（下标为服务器结点编号）
+    private final int[] slot;
+
+    //服务器当前放开的副本数目
+    private final int[] cap;
+
+    //服务器当前的负载量
+    private final int[] load;
+
+    //serverTasks[base[s] .. base[s]+load[s]) 为分配给服务器 s 的任务（下标为任务序号 0..taskCount-1）
+    private final int[] base;
+    private final int[] serverTasks;
+
+    //任务分配到的服务器结点编号，未分配时为 -1
+    private final int[] matchServer;
+
+    //BFS 分层得到的任务层数
+    private final int[] dist;
+
+    //DFS 中每个任务下一条待检查的边
+    private final int[] taskIter;
+
+    //DFS 中每个服务器下一个待检查的副本
+    private final int[] serverIter;
+
+    //BFS 中服务器是否已被访问，用阶段编号标记，避免每个阶段清空数组
+    private final int[] serverSeen;
+    private int phase = 0;
+
+    //占满的服务器在分层图中的层数，即占用其副本的任务所在的层
+    private final int[] serverDist;
+
+    //本阶段最短增广路径到达空闲服务器时的层数，DFS 只在这一层接受空闲服务器
+    private int shortest = INF;
+
+    private final int[] queue;
+    private final int[] stackTask;
+    private final int[] stackServer;
+    private final int[] stackPos;
+
+    private int matched = 0;
+
+    public HopcroftKarp(ResidualGraph graph)
+    {
+        this.graph = graph;
+        this.serverCount = graph.getServerCount();
+        this.taskCount = graph.getTaskCount();
+
+        slot = new int[serverCount + 1];
+        for(int arc = graph.arcBegin(ResidualGraph.SOURCE); arc < graph.arcEnd(ResidualGraph.SOURCE); arc++)
+            slot[graph.getHead(arc)] += graph.getCapacity(arc);
+
+        cap = new int[serverCount + 1];
+        load = new int[serverCount + 1];
+        base = new int[serverCount + 2];
+        for(int s = 1; s <= serverCount; s++)
+            base[s + 1] = base[s] + slot[s];
+        serverTasks = new int[base[serverCount + 1]];
+
+        matchServer = new int[taskCount];
+        Arrays.fill(matchServer, -1);
+        dist = new int[taskCount];
+        taskIter = new int[taskCount];
+        serverIter = new int[serverCount + 1];
+        serverSeen = new int[serverCount + 1];
+        serverDist = new int[serverCount + 1];
+
+        queue = new int[taskCount];
+        stackTask = new int[taskCount];
+        stackServer = new int[taskCount];
+        stackPos = new int[taskCount];
+    }
+
+    /**
+     * 逐层放开服务器的副本数目并求最大匹配
+     * @return 分配成功的任务数目
+     */
+    public int solve()
+    {
+        return solve(new int[serverCount + 1]);
+    }
+
+    /**
+     * 与 solve() 相同，但服务器已有负载：第 level 层时服务器放开 min(level, slot) - 负载 个副本，
+     * 因此按照加上已有负载之后的总负载逐层放开
+     * @param initialLoad : 按服务器结点编号存放的已有负载
+     * @return 分配成功的任务数目
+     */
+    public int solve(int[] initialLoad)
+    {
+        int maxSlot = 0;
+        for(int s = 1; s <= serverCount; s++)
+            maxSlot = Math.max(maxSlot, slot[s]);
+
+        for(int level = 1; level <= maxSlot && matched < taskCount; level++) {
+            for(int s = 1; s <= serverCount; s++)
+                cap[s] = Math.max(cap[s], Math.min(level, slot[s]) - initialLoad[s]);
+            while(bfs()) {
+                for(int s = 1; s <= serverCount; s++)
+                    serverIter[s] = 0;
+                for(int t = 0; t < taskCount; t++)
+                    taskIter[t] = graph.arcBegin(taskNode(t));
+                for(int t = 0; t < taskCount; t++) {
+                    if(matchServer[t] == -1 && dist[t] == 0)
+                        dfs(t);
+                }
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * 获取任务分配到的服务器
+     * @param taskNode : 任务结点编号
+     * @return 服务器结点编号，未分配时为 -1
+     */
+    public int getServer(int taskNode)
+    {
+        return matchServer[taskNode - serverCount - 1];
+    }
+
+    private int taskNode(int task)
+    {
+        return serverCount + 1 + task;
+    }
+
+    //残量图中任务结点的边指向服务器，并且服务器与任务之间确实存在边（未被移除）
+    private boolean isServerArc(int arc)
+    {
+        return graph.isServer(graph.getHead(arc)) && graph.getCapacity(arc) > 0;
+    }
+
+    /**
+     * 从所有未分配的任务出发进行分层，找到空闲服务器所在的层后不再向更深层扩展
+     * @return 是否存在增广路径
+     */
+    private boolean bfs()
+    {
+        phase++;
+        int head = 0, tail = 0;
+        for(int t = 0; t < taskCount; t++) {
+            if(matchServer[t] == -1) {
+                dist[t] = 0;
+                queue[tail++] = t;
+            }
+            else
+                dist[t] = INF;
+        }
+
+        int limit = INF;
+        while(head < tail) {
+            int t = queue[head++];
+            if(dist[t] >= limit)
+                continue;
+            int node = taskNode(t);
+            for(int arc = graph.arcBegin(node); arc < graph.arcEnd(node); arc++) {
+                if(!isServerArc(arc))
+                    continue;
+                int s = graph.getHead(arc);
+                if(load[s] < cap[s]) {
+                    limit = dist[t] + 1;
+                }
+                else if(serverSeen[s] != phase) {
+                    //服务器的副本已被占满，沿匹配边到达占用副本的任务
+                    serverSeen[s] = phase;
+                    serverDist[s] = dist[t] + 1;
+                    for(int i = base[s]; i < base[s] + load[s]; i++) {
+                        int u = serverTasks[i];
+                        if(dist[u] == INF) {
+                            dist[u] = dist[t] + 1;
+                            queue[tail++] = u;
+                        }
+                    }
+                }
+            }
+        }
+        shortest = limit;
+        return limit != INF;
+    }
+
+    /**
+     * 从未分配任务 root 出发沿分层图寻找一条增广路径，用显式栈代替递归
+     * @param root
+     */
+    private void dfs(int root)
+    {
+        int top = 0;
+        stackTask[0] = root;
+        while(top >= 0) {
+            int t = stackTask[top];
+            int end = graph.arcEnd(taskNode(t));
+            int freeServer = -1;
+            int next = -1;
+            while(taskIter[t] < end) {
+                int arc = taskIter[t];
+                if(!isServerArc(arc)) {
+                    taskIter[t]++;
+                    continue;
+                }
+                int s = graph.getHead(arc);
+                //只接受最短增广路径长度上的空闲服务器，保证每个阶段只沿最短增广路径增广，下一阶段的最短长度严格增大
+                if(load[s] < cap[s]) {
+                    if(dist[t] + 1 == shortest) {
+                        freeServer = s;
+                        break;
+                    }
+                    taskIter[t]++;
+                    continue;
+                }
+                //只沿分层图中的下一层前进，并且不超过最短增广路径的长度，否则会提前耗尽其他层服务器的迭代位置
+                if(dist[t] + 1 >= shortest || serverSeen[s] != phase || serverDist[s] != dist[t] + 1) {
+                    taskIter[t]++;
+                    continue;
+                }
+                while(serverIter[s] < load[s]) {
+                    int u = serverTasks[base[s] + serverIter[s]];
+                    if(dist[u] == serverDist[s]) {
+                        next = u;
+                        break;
+                    }
+                    serverIter[s]++;
+                }
+                if(next != -1) {
+                    stackServer[top] = s;
+                    stackPos[top] = serverIter[s]++;
+                    break;
+                }
+                taskIter[t]++;
+            }
+
+            if(freeServer != -1) {
+                augment(top, freeServer);
+                return;
+            }
+            if(next != -1) {
+                stackTask[++top] = next;
+            }
+            else {
+                //从当前任务出发无法到达空闲服务器，本阶段不再访问它
+                dist[t] = INF;
+                top--;
+            }
+        }
+    }
+
+    /**
+     * 沿栈中记录的路径进行增广：栈顶任务占用空闲服务器的一个副本，其余任务依次占用后一个任务让出的副本
+     * @param top
+     * @param freeServer
+     */
+    private void augment(int top, int freeServer)
+    {
+        int t = stackTask[top];
+        int pos = load[freeServer]++;
+        serverTasks[base[freeServer] + pos] = t;
+        matchServer[t] = freeServer;
+        dist[t] = INF;
+
+        for(int i = top - 1; i >= 0; i--) {
+            t = stackTask[i];
+            int s = stackServer[i];
+            serverTasks[base[s] + stackPos[i]] = t;
+            matchServer[t] = s;
+            dist[t] = INF;
+        }
+        matched++;
+    }
+}
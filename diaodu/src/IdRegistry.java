@@ -0,0 +1,91 @@
+import java.util.*;
+
+/**
+ * 编号注册表：在构建数据源时一次性地把服务器名、任务名（如 "s3"、"t17"）映射为从 1 开始的稠密整数编号，
+ * 调度过程中只使用整数编号，只在写回 Server 的分配结果时才换回名称，不再通过 substring 和 parseInt 解析名称。
+ * 任务编号同时也是任务之间紧密度矩阵的下标
+ */
+public class IdRegistry
+{
+    //key:服务器名  value:服务器编号
+    private final Map<String, Integer> serverIds = new HashMap<>();
+
+    //key:任务名  value:任务编号
+    private final Map<String, Integer> taskIds = new HashMap<>();
+
+    //按编号存放的服务器名，下标 0 不使用
+    private final List<String> serverNames = new ArrayList<>();
+
+    //按编号存放的任务名，下标 0 不使用
+    private final List<String> taskNames = new ArrayList<>();
+
+    public IdRegistry()
+    {
+        serverNames.add(null);
+        taskNames.add(null);
+    }
+
+    /**
+     * 注册一个服务器，已经注册过的服务器返回原有的编号
+     * @param name : 服务器名
+     * @return 服务器编号
+     */
+    public int registerServer(String name)
+    {
+        return register(name, serverIds, serverNames);
+    }
+
+    /**
+     * 注册一个任务，已经注册过的任务返回原有的编号
+     * @param name : 任务名
+     * @return 任务编号
+     */
+    public int registerTask(String name)
+    {
+        return register(name, taskIds, taskNames);
+    }
+
+    private static int register(String name, Map<String, Integer> ids, List<String> names)
+    {
+        Integer id = ids.get(name);
+        if(id != null)
+            return id;
+        ids.put(name, names.size());
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    //服务器编号，未注册时为 -1
+    public int getServerId(String name)
+    {
+        Integer id = serverIds.get(name);
+        return id == null ? -1 : id;
+    }
+
+    //任务编号，未注册时为 -1
+    public int getTaskId(String name)
+    {
+        Integer id = taskIds.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public String getServerName(int id)
+    {
+        return serverNames.get(id);
+    }
+
+    public String getTaskName(int id)
+    {
+        return taskNames.get(id);
+    }
+
+    public int getServerCount()
+    {
+        return serverNames.size() - 1;
+    }
+
+    public int getTaskCount()
+    {
+        return taskNames.size() - 1;
+    }
+}
@@ -0,0 +1,136 @@
+import java.util.Arrays;
+
+/**
+ * 按键值排序的索引最小堆：元素为 1..capacity 的整数编号（如服务器编号），每个元素带有一个整数键值（如负载），
+ * 支持按编号修改键值（增大或减小）和删除，取最小元素为 O(1)，其余操作为 O(log n)。
+ * 键值相同时编号较小的元素优先
+ */
+public class IndexedMinHeap
+{
+    //heap[k] 为堆中第 k 个位置的元素编号
+    private final int[] heap;
+
+    //position[id] 为元素在堆中的位置，-1 表示不在堆中
+    private final int[] position;
+
+    private final int[] key;
+
+    private int size = 0;
+
+    /**
+     * @param capacity : 元素编号的最大值
+     */
+    public IndexedMinHeap(int capacity)
+    {
+        heap = new int[capacity];
+        position = new int[capacity + 1];
+        key = new int[capacity + 1];
+        Arrays.fill(position, -1);
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean contains(int id)
+    {
+        return position[id] != -1;
+    }
+
+    public int getKey(int id)
+    {
+        return key[id];
+    }
+
+    //键值最小的元素编号，堆为空时返回 -1
+    public int peek()
+    {
+        return size == 0 ? -1 : heap[0];
+    }
+
+    /**
+     * 加入元素，元素已在堆中时修改其键值
+     * @param id : 元素编号
+     * @param value : 键值
+     */
+    public void put(int id, int value)
+    {
+        if(position[id] == -1) {
+            heap[size] = id;
+            position[id] = size;
+            key[id] = value;
+            siftUp(size++);
+            return;
+        }
+        int old = key[id];
+        key[id] = value;
+        if(value < old)
+            siftUp(position[id]);
+        else if(value > old)
+            siftDown(position[id]);
+    }
+
+    //删除元素，元素不在堆中时不做任何操作
+    public void remove(int id)
+    {
+        int k = position[id];
+        if(k == -1)
+            return;
+        position[id] = -1;
+        size--;
+        if(k == size)
+            return;
+        //用最后一个元素填补空位，再按其键值向上或向下调整
+        int moved = heap[size];
+        heap[k] = moved;
+        position[moved] = k;
+        siftUp(k);
+        if(position[moved] == k)
+            siftDown(k);
+    }
+
+    private boolean less(int a, int b)
+    {
+        return key[a] < key[b] || (key[a] == key[b] && a < b);
+    }
+
+    private void siftUp(int k)
+    {
+        int id = heap[k];
+        while(k > 0) {
+            int parent = (k - 1) >>> 1;
+            if(!less(id, heap[parent]))
+                break;
+            heap[k] = heap[parent];
+            position[heap[k]] = k;
+            k = parent;
+        }
+        heap[k] = id;
+        position[id] = k;
+    }
+
+    private void siftDown(int k)
+    {
+        int id = heap[k];
+        while(true) {
+            int child = 2 * k + 1;
+            if(child >= size)
+                break;
+            if(child + 1 < size && less(heap[child + 1], heap[child]))
+                child++;
+            if(!less(heap[child], id))
+                break;
+            heap[k] = heap[child];
+            position[heap[k]] = k;
+            k = child;
+        }
+        heap[k] = id;
+        position[id] = k;
+    }
+}
@@ -4,16 +4,30 @@ import java.util.*;
  *  负载均衡调度策略：每次从所有服务器中选取负载值最小的服务器作为分配任务的起点，来达到负载均衡
  *  并且保证分配到的任务均满足本地性(利用增广路径来保证分配给所有服务器的任务均是本地任务)
  */
-public class LoadBalancingSchedule
+public class LoadBalancingSchedule implements Scheduler
 {
-    //保存当前经过的路径，即流
-    private List<Edge> path = new ArrayList<>();
+    //保证本地性的分配所采用的求解方式。调度过程中的可变状态均保存在每次调用新建的 ScheduleContext 中
+    private final LocalityEngine engine;
 
-    //key:服务器名称  value:该服务器当前的负载量
-    private Map<String, Integer> serverLoadMap = new HashMap<>();
+    //调度过程的监听器
+    private final ScheduleListener listener;
 
-    //key:任务  value:为该任务分配的服务器
-    private Map<String, String> allocatedTask = new HashMap<>();
+    /**
+     * 默认与其他调度策略一样使用 LocalityEngine.AUGMENT_PATH，即每次从最小负载服务器出发寻找一条增广路径。
+     * 它在最小负载服务器找不到增广路径时即停止，分配的任务数目可能少于 LocalityEngine.HOPCROFT_KARP
+     */
+    public LoadBalancingSchedule() {
+        this(LocalityEngine.AUGMENT_PATH);
+    }
+
+    public LoadBalancingSchedule(LocalityEngine engine) {
+        this(engine, ScheduleListener.NONE);
+    }
+
+    public LoadBalancingSchedule(LocalityEngine engine, ScheduleListener listener) {
+        this.engine = engine;
+        this.listener = listener;
+    }
 
     /**
      * @param serverCount : 服务器数量
@@ -21,161 +35,183 @@ public class LoadBalancingSchedule
      * @return 最终的分配结果
      */
     public List<Server> getTaskAllocation(int serverCount, int taskCount) {
+        return getTaskAllocation(new DataSource(serverCount, taskCount));
+    }
+
+    public List<Server> getTaskAllocation(DataSource ds) {
+        return getTaskAllocation(new ClusterModel(ds));
+    }
+
+    @Override
+    public Assignment schedule(ClusterModel model) {
+        return Assignment.fromServers(model, getTaskAllocation(model));
+    }
 
-        DataSource ds = new DataSource(serverCount, taskCount);
+    /**
+     * 按照 engine 指定的方式求出所有本地任务的分配。HopcroftKarp 与 MaxFlow 均将服务器的可用 slot 从已有负载开始逐层放开以保证负载均衡
+     * @param model : 集群模型
+     * @return 最终的分配结果
+     */
+    public List<Server> getTaskAllocation(ClusterModel model) {
+
+        ScheduleContext context = new ScheduleContext(model, listener);
+        if(engine == LocalityEngine.AUGMENT_PATH)
+            return getTaskAllocationByAugmentPath(model, context);
+
+        List<Server> servers = context.getServers();
+        ResidualGraph graph = context.getGraph();
+
+        //按服务器编号存放的负载
+        int[] serverLoad = new int[graph.getServerCount() + 1];
+        for(int serverNode = 1; serverNode <= graph.getServerCount(); serverNode++)
+            serverLoad[serverNode] = model.getServerLoad(serverNode);
+
+        long start = listener.startPhase();
+        //服务器已有的负载占用相应数目的 slot，逐层放开时从已有负载开始
+        HopcroftKarp matching = null;
+        if(engine == LocalityEngine.HOPCROFT_KARP) {
+            matching = new HopcroftKarp(graph);
+            matching.solve(serverLoad);
+        }
+        else
+            new MaxFlow(graph).solveBalanced(serverLoad);
+
+        for(int t = 1; t <= graph.getTaskCount(); t++) {
+            int taskNode = graph.getServerCount() + t;
+            int serverNode = matching != null ? matching.getServer(taskNode) : graph.getAssignedServer(taskNode);
+            if(serverNode != -1) {
+                context.assign(t, serverNode);
+                serverLoad[serverNode]++;
+            }
+        }
+        listener.endPhase(ScheduleListener.Phase.LOCALITY, start);
 
-        List<Server> servers = new ArrayList<>(ds.getServers());
+        //将最终分配结果写回服务器集合
+        start = listener.startPhase();
+        updateServers(context, serverLoad);
+        listener.endPhase(ScheduleListener.Phase.WRITE_BACK, start);
 
-        Map<String,Set<String>> preferedTasks = ds.getPreferedTasks();
+        return servers;
+    }
 
-        //key:路径  value:该路径对应的边对象
-        Map<String,Edge> edges = ds.getEdges();
+    /**
+     * 每次从负载最小的服务器出发寻找一条增广路径进行分配
+     * @param model : 集群模型
+     * @param context : 本次调度的上下文
+     * @return 最终的分配结果
+     */
+    private List<Server> getTaskAllocationByAugmentPath(ClusterModel model, ScheduleContext context) {
 
-        //key:服务器名  value:该服务器的 slot 数目
-        Map<String,Integer> serverSlotMap = new HashMap<>();
+        List<Server> servers = context.getServers();
 
-        //当前已经负载达到饱和的服务器集合
-        Set<String> fullServerSet = new HashSet<>();
+        //二分图对应的残量图
+        ResidualGraph graph = context.getGraph();
 
-        //初始化 serverLoadMap 和 allocatedMap
+        //保存当前经过的路径，即流
+        AugmentPath path = new AugmentPath(graph, listener);
 
-        for(Server server : servers) {
-            serverLoadMap.put(server.getServerName(), server.getLoad());
-            serverSlotMap.put(server.getServerName(), server.getSlot());
+        //按服务器编号存放的负载和 slot 数目
+        int[] serverLoad = new int[graph.getServerCount() + 1];
+        int[] serverSlot = new int[graph.getServerCount() + 1];
+
+        //负载尚未饱和的服务器按负载组成的最小堆，负载达到 slot 数目的服务器从堆中移除
+        IndexedMinHeap openServers = new IndexedMinHeap(graph.getServerCount());
+
+        for(int serverNode = 1; serverNode <= graph.getServerCount(); serverNode++) {
+            serverLoad[serverNode] = model.getServerLoad(serverNode);
+            serverSlot[serverNode] = context.getServerSlot(serverNode);
+            if(serverLoad[serverNode] < serverSlot[serverNode])
+                openServers.put(serverNode, serverLoad[serverNode]);
         }
 
-        //得到负载量最小的服务器名，作为搜索路径的起点
-        String minLoadServer = getMinLoadServer(serverLoadMap, fullServerSet);
+        long start = listener.startPhase();
+
+        //得到负载量最小的服务器，作为搜索路径的起点
+        int minLoadServer = openServers.peek();
 
-        //找到一条从最小负载服务器出发的增广路径，将其放入到 path 中。根据path更新服务器的负载load与edges，
+        //找到一条从最小负载服务器出发的增广路径，将其放入到 path 中。根据path更新服务器的负载load与残量图，
         //由于权值为1,因此在走过一次后将路径反向。如走过一条路径 s1->t1->T 此时路径反向变为 T->t1->s1 并且需要更新 s1 的负载
-        while(AugmentPath.hasAugmentPath(minLoadServer,"T", path, edges)) {
+        while(minLoadServer != -1 && path.hasAugmentPath(minLoadServer, graph.getSink())) {
 
-            for(Edge edge : path) {
+            listener.onAugment(path.getLength());
+            for(int i = 0; i < path.getLength(); i++) {
+                int arc = path.getArc(i);
 
-                //筛选出以服务器开头的 edge，用以更新服务器的负载
-                if(edge.getStart().startsWith("s")) {
+                //筛选出以服务器开头的边，用以更新服务器的负载
+                if(graph.isServer(graph.getTail(arc))) {
 
-                    String server = edge.getStart();
-                    String task = edge.getEnd();
+                    int serverNode = graph.getTail(arc);
+                    int task = graph.getTaskId(graph.getHead(arc));
 
                     //进行回流操作
-                    withdrawFlow(task, allocatedTask, serverSlotMap, fullServerSet, edges);
+                    withdrawFlow(task, context, serverLoad, serverSlot, openServers);
 
                     //将该任务加入已分配服务器集合中
-                    allocatedTask.put(task, server);
-
-                    //该服务器的负载加 1
-                    serverLoadMap.put(server, serverLoadMap.get(server) + 1);
-
-                    //当前服务器分配到的任务数量达到了该服务器的阈值，此时将该服务器加入负载饱和的服务器集合中
-                    if(serverLoadMap.get(server) == serverSlotMap.get(server))
-                        fullServerSet.add(server);
+                    context.assign(task, serverNode);
+
+                    //该服务器的负载加 1，分配到的任务数量达到了该服务器的阈值时不再参与最小负载服务器的竞争
+                    serverLoad[serverNode]++;
+                    if(serverLoad[serverNode] >= serverSlot[serverNode])
+                        openServers.remove(serverNode);
+                    else
+                        openServers.put(serverNode, serverLoad[serverNode]);
                 }
-
-                //从原有边信息中移除path中当前处理的边信息
-                String key = edge.getPath();
-                    if(edges.containsKey(key))
-                        edges.remove(key);
-
-                //加入当前处理边的的反向边，权值与当前处理边的权值一致
-                Edge reverseEdge = new Edge(edge.getEnd(), edge.getStart());
-                edges.put(reverseEdge.getPath(), reverseEdge);
             }
 
+            //将路径上的边原地反向，任务原先所在服务器的流也会随之回撤
+            path.augment();
+
             //所有任务都已经被分配，跳出搜索增广路径
-            if(allocatedTask.size() == ds.getTaskCount())
+            if(context.getAllocatedCount() == model.getTaskCount())
                 break;
 
-            path.clear();
-
             //重新获取最小负载对应的服务器
-            minLoadServer = getMinLoadServer(serverLoadMap, fullServerSet);
+            minLoadServer = openServers.peek();
         }
+        listener.endPhase(ScheduleListener.Phase.LOCALITY, start);
 
         //将最终分配结果写回服务器集合
-        updateServers(servers, serverLoadMap, allocatedTask);
+        start = listener.startPhase();
+        updateServers(context, serverLoad);
+        listener.endPhase(ScheduleListener.Phase.WRITE_BACK, start);
 
         return servers;
     }
 
     /** 如果当前的任务 t 已经分配给了其他服务器 s，此时需要将任务 t 从服务器 s 中移除，也即需要回流操作
-     *  并且需要更新服务器的负载，若服务器 s 原先已经满负载，移除当前任务后，应该从满负载服务器集合中移除服务器 s
-     * @param task : 当前待分配的任务
-     * @param allocatedTask : key:任务  value:分配给该任务的服务器
-     * @param serverSlotMap : key:服务器  value:服务器对应的 slot 数目
-     * @param fullServerSet : 所有负载达已满的服务器集合
-     * @param edges : 二分图边集合
+     *  并且需要更新服务器的负载，服务器 s 的负载减小后重新参与（或继续参与）最小负载服务器的竞争。
+     *  增广路径中必然包含边 t->s，该边的反向由增广操作完成
+     * @param task : 当前待分配的任务编号
+     * @param context : 本次调度的上下文，记录了每个任务分配到的服务器
+     * @param serverLoad : 按服务器编号存放的负载
+     * @param serverSlot : 按服务器编号存放的 slot 数目
+     * @param openServers : 负载未饱和的服务器按负载组成的最小堆
      */
-    private void withdrawFlow(String task, Map<String, String> allocatedTask,  Map<String, Integer> serverSlotMap,
-                              Set<String> fullServerSet, Map<String,Edge> edges){
-
-        if(allocatedTask.containsKey(task)){
-
-            String preServer = allocatedTask.get(task); //获得分配到该任务对应的服务器
-            serverLoadMap.put(preServer, serverLoadMap.get(preServer) - 1); //更新负载
-
-            //当前服务器的负载小于其slot数目，若该服务在满负载集合中，则把它移除
-            if(serverLoadMap.get(preServer) < serverSlotMap.get(preServer))
-                if(fullServerSet.contains(preServer))
-                    fullServerSet.remove(preServer);
-
-            //将该任务对应的先前服务器的流反向
-            if(edges.containsKey(task + "->" + preServer))
-                edges.remove(task + "->" + preServer);
-            Edge e = new Edge(preServer, task);
-            edges.put(e.getPath(), e);
+    private void withdrawFlow(int task, ScheduleContext context, int[] serverLoad, int[] serverSlot,
+                              IndexedMinHeap openServers){
+
+        int preServer = context.getAssignedServer(task); //获得分配到该任务对应的服务器
+        if(preServer != 0){
+            serverLoad[preServer]--; //更新负载
+            if(serverLoad[preServer] < serverSlot[preServer])
+                openServers.put(preServer, serverLoad[preServer]);
         }
     }
 
     /**
-     * @param serverList : 服务器集合
-     * @param serverLoadMap ：key:服务器  value:该服务器当前的负载量
-     * @param allocatedTask ： key:任务  value:分配给该任务的服务器
+     * @param context : 本次调度的上下文，其中记录了每个任务分配到的服务器
+     * @param serverLoad ：按服务器编号存放的负载
      */
-    private void updateServers(List<Server> serverList, Map<String, Integer> serverLoadMap,
-                              Map<String, String> allocatedTask) {
-
-        Map<String, Set<String>> allocated = new HashMap<>();
-        for(String task : allocatedTask.keySet()){
-            String serverName = allocatedTask.get(task);
-            if(allocated.containsKey(serverName))
-                allocated.get(serverName).add(task);
-            else{
-                Set<String> set = new HashSet<>();
-                set.add(task);
-                allocated.put(serverName, set);
-            }
-        }
+    private void updateServers(ScheduleContext context, int[] serverLoad) {
 
-        for(Server server : serverList){
+        Map<String, Set<String>> allocated = context.getAllocatedTasksByServer();
+        IdRegistry registry = context.getRegistry();
+        for(Server server : context.getServers()){
             String serverName = server.getServerName();
             if(allocated.containsKey(serverName))
                 server.setAllocatedTask(allocated.get(serverName));
-            if(serverLoadMap.containsKey(serverName))
-                server.setLoad(serverLoadMap.get(serverName));
-        }
-    }
-
-    /**
-     * 获取服务器中负载最小的服务器
-     * @param serverLoadMap
-     * @return
-     */
-    public String getMinLoadServer(Map<String,Integer> serverLoadMap, Set<String> fullServerSet) {
-
-        int min = Integer.MAX_VALUE;
-        String serverName = null;
-        for(String server : serverLoadMap.keySet()) {
-            //如果当前服务器的负载达到阈值，不再参与最小负载服务器的竞争
-            if(fullServerSet.contains(server))
-                continue;
-            if(serverLoadMap.get(server) < min) {
-                serverName = server;
-                min = serverLoadMap.get(server);
-            }
+            server.setLoad(serverLoad[registry.getServerId(serverName)]);
         }
-        return serverName;
     }
 
     public static void main(String[] args){
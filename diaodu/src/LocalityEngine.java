@@ -0,0 +1,14 @@
+/**
+ * 保证本地性的初始分配所采用的求解方式
+ */
+public enum LocalityEngine
+{
+    //每次从选定的服务器出发，利用 AugmentPath 逐条寻找增广路径
+    AUGMENT_PATH,
+
+    //HopcroftKarp 匹配，每个阶段同时寻找多条最短增广路径
+    HOPCROFT_KARP,
+
+    //MaxFlow 最大流，服务器的 slot 数目作为 S->服务器 边的容量
+    MAX_FLOW
+}
@@ -0,0 +1,130 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按对数分桶的直方图，用于记录用时、访问结点数等非负整数。小于 subBuckets 的值各占一个桶，
+ * 更大的值按最高位所在的 2 的幂次分组，每组再线性地均分为 subBuckets 个桶，因此桶的数目固定。
+ * 精度只由 subBuckets 决定：给出的分位数是所在桶的上界，不小于真实值，并且比真实值大不超过真实值的 1/subBuckets。
+ * 默认 subBuckets 为 128，即相对误差不超过 1/128（小于 1%），相当于至少 2 位有效数字，与按 2 位有效数字配置的 HdrHistogram 的精度相当，
+ * 此时共有 (64-7+1)*128 = 7424 个桶。可以用 LogHistogram(subBucketBits) 调整 subBuckets，每增加 1 位误差减半、桶的数目加倍。
+ * 与 HdrHistogram 不同，这里的精度按二进制位而不是有效数字配置，范围固定覆盖全部非负 long，不需要自动扩展。
+ * 记录为几次原子加法，不加锁，可以被多个线程同时记录
+ */
+public class LogHistogram
+{
+    //默认每个 2 的幂次分组中的桶数为 2^7 = 128，分位数的相对误差不超过 1/128，即至少 2 位有效数字
+    public static final int DEFAULT_SUB_BUCKET_BITS = 7;
+
+    //每个 2 的幂次分组中的桶数为 2^subBucketBits
+    private final int subBucketBits;
+    private final int subBuckets;
+
+    private final AtomicLongArray counts;
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LogHistogram()
+    {
+        this(DEFAULT_SUB_BUCKET_BITS);
+    }
+
+    /**
+     * @param subBucketBits : 每个 2 的幂次分组中的桶数为 2^subBucketBits，取值 0..16，分位数的相对误差不超过 1/2^subBucketBits
+     */
+    public LogHistogram(int subBucketBits)
+    {
+        if(subBucketBits < 0 || subBucketBits > 16)
+            throw new IllegalArgumentException("subBucketBits " + subBucketBits + " 应在 0..16 之间");
+        this.subBucketBits = subBucketBits;
+        this.subBuckets = 1 << subBucketBits;
+        this.counts = new AtomicLongArray((64 - subBucketBits + 1) * subBuckets);
+    }
+
+    /**
+     * @param value : 记录的值，小于 0 时记为 0
+     */
+    public void record(long value)
+    {
+        if(value < 0)
+            value = 0;
+        counts.incrementAndGet(getBucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount()
+    {
+        return count.sum();
+    }
+
+    public long getMax()
+    {
+        return max.get();
+    }
+
+    public double getMean()
+    {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @param percentile : 百分位，0..100
+     * @return 该百分位所在桶的上界（不超过记录的最大值），没有记录时返回 0
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        long n = count.sum();
+        if(n == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for(int b = 0; b < counts.length(); b++) {
+            seen += counts.get(b);
+            if(seen >= rank)
+                return Math.min(getUpperBound(b), getMax());
+        }
+        return getMax();
+    }
+
+    public void reset()
+    {
+        for(int b = 0; b < counts.length(); b++)
+            counts.set(b, 0);
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    //值所在的桶：组号为最高位的位置减去 subBucketBits 再加 1，组内位置为最高位之后的 subBucketBits 位
+    private int getBucket(long value)
+    {
+        if(value < subBuckets)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - subBucketBits;
+        return (shift + 1) * subBuckets + (int) ((value >>> shift) & (subBuckets - 1));
+    }
+
+    //桶中的最大值
+    private long getUpperBound(int bucket)
+    {
+        if(bucket < subBuckets)
+            return bucket;
+        int shift = bucket / subBuckets - 1;
+        long low = (long) (subBuckets + bucket % subBuckets) << shift;
+        return low + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "count=" + getCount() + ", mean=" + String.format("%.1f", getMean()) + ", p50=" + getValueAtPercentile(50)
+                + ", p99=" + getValueAtPercentile(99) + ", max=" + getMax();
+    }
+}
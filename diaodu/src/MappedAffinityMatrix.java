@@ -0,0 +1,187 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 存放在内存映射文件中的紧密度矩阵：元素按照与 PackedAffinityMatrix 相同的上三角方式排列，数据位于堆外，
+ * 由操作系统的页缓存按需载入，不占用 Java 堆，也不会增加 GC 的负担。
+ * 以只读方式打开时，同一台机器上的多个调度进程映射同一个文件即可共享一份物理内存。
+ *
+ * 文件格式（大端）：魔数 MAGIC(int)、格式版本 VERSION(int)、任务数目(int)、保留(int)，之后为上三角的全部元素，每个元素一个字节
+ */
+public class MappedAffinityMatrix implements AffinityMatrix
+{
+    public static final int MAGIC = 0x41464D58;
+
+    public static final int VERSION = 1;
+
+    //文件头的长度
+    public static final int HEADER_SIZE = 16;
+
+    //单个 MappedByteBuffer 最多映射 2^31-1 个字节，因此按 2^30 个字节分段映射
+    private static final int SEGMENT_BITS = 30;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final int taskCount;
+
+    private final MappedByteBuffer[] segments;
+
+    private final boolean writable;
+
+    private MappedAffinityMatrix(int taskCount, MappedByteBuffer[] segments, boolean writable)
+    {
+        this.taskCount = taskCount;
+        this.segments = segments;
+        this.writable = writable;
+    }
+
+    /**
+     * 以只读方式映射已有的矩阵文件
+     * @param file : 矩阵文件
+     * @return
+     * @throws IOException 文件格式不正确或长度与任务数目不符
+     */
+    public static MappedAffinityMatrix open(Path file) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int taskCount = readHeader(channel, file);
+            return new MappedAffinityMatrix(taskCount, map(channel, FileChannel.MapMode.READ_ONLY, taskCount), false);
+        }
+    }
+
+    /**
+     * 新建（或覆盖）一个所有紧密度均为 0 的矩阵文件，并以可写方式映射，用于填充矩阵
+     * @param file : 矩阵文件
+     * @param taskCount : 任务数目
+     * @return
+     * @throws IOException
+     */
+    public static MappedAffinityMatrix create(Path file, int taskCount) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(taskCount).putInt(0);
+            header.flip();
+            while(header.hasRemaining())
+                channel.write(header);
+            return new MappedAffinityMatrix(taskCount, map(channel, FileChannel.MapMode.READ_WRITE, taskCount), true);
+        }
+    }
+
+    /**
+     * 把任意紧密度矩阵按行写入矩阵文件，写入后可以通过 open 映射
+     * @param matrix : 紧密度矩阵
+     * @param file : 矩阵文件
+     * @throws IOException
+     */
+    public static void save(AffinityMatrix matrix, Path file) throws IOException
+    {
+        int taskCount = matrix.getTaskCount();
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(taskCount).putInt(0);
+            for(int i = 1; i < taskCount; i++)
+                for(int j = i + 1; j <= taskCount; j++) {
+                    if(!buffer.hasRemaining())
+                        flush(channel, buffer);
+                    buffer.put((byte) matrix.get(i, j));
+                }
+            flush(channel, buffer);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    //读取并检查文件头，返回任务数目
+    static int readHeader(FileChannel channel, Path file) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while(header.hasRemaining()) {
+            if(channel.read(header, header.position()) < 0)
+                break;
+        }
+        header.flip();
+        if(header.remaining() < HEADER_SIZE || header.getInt() != MAGIC)
+            throw new IOException(file + " 不是紧密度矩阵文件");
+        int version = header.getInt();
+        if(version != VERSION)
+            throw new IOException(file + " 的格式版本 " + version + " 不受支持");
+        int taskCount = header.getInt();
+        if(taskCount < 0 || channel.size() < HEADER_SIZE + PackedAffinityMatrix.getSize(taskCount))
+            throw new IOException(file + " 的长度与任务数目 " + taskCount + " 不符");
+        return taskCount;
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, int taskCount) throws IOException
+    {
+        long size = Math.max(0, PackedAffinityMatrix.getSize(taskCount));
+        int segmentCount = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+        MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+        for(int s = 0; s < segmentCount; s++) {
+            long offset = (long) s << SEGMENT_BITS;
+            segments[s] = channel.map(mode, HEADER_SIZE + offset, Math.min(SEGMENT_SIZE, size - offset));
+        }
+        return segments;
+    }
+
+    @Override
+    public int getTaskCount()
+    {
+        return taskCount;
+    }
+
+    @Override
+    public int get(int i, int j)
+    {
+        if(i == j)
+            return 0;
+        if(i > j) {
+            int k = i;
+            i = j;
+            j = k;
+        }
+        long index = PackedAffinityMatrix.getIndex(taskCount, i, j);
+        //使用绝对位置读取，不改变缓冲区的 position，因此多个线程可以同时读取
+        return segments[(int) (index >>> SEGMENT_BITS)].get((int) (index & SEGMENT_MASK));
+    }
+
+    /**
+     * 设置两个任务之间的紧密度，只有通过 create 得到的矩阵可以修改
+     * @param i : 任务编号
+     * @param j : 任务编号
+     * @param value : 紧密度，取值 0..127
+     */
+    public void set(int i, int j, int value)
+    {
+        if(!writable)
+            throw new UnsupportedOperationException("只读映射的紧密度矩阵不能修改");
+        if(i == j)
+            return;
+        if(i > j) {
+            int k = i;
+            i = j;
+            j = k;
+        }
+        long index = PackedAffinityMatrix.getIndex(taskCount, i, j);
+        segments[(int) (index >>> SEGMENT_BITS)].put((int) (index & SEGMENT_MASK), (byte) value);
+    }
+
+    //把修改写回文件
+    public void force()
+    {
+        for(MappedByteBuffer segment : segments)
+            segment.force();
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Dinic 最大流：在残量图上求 S 到 T 的最大流。S->服务器 边的容量为服务器的 slot 数目，
+ * 服务器->任务、任务->T 边的容量为 1，因此一次求解即可得到满足 slot 限制的最大本地任务分配，
+ * 不再需要在图外维护满负载服务器集合。
+ * 每个阶段用 BFS 对残量图分层，再用带当前弧优化的迭代 DFS 在分层图上不断推送阻塞流
+ */
+public class MaxFlow
+{
+    private final ResidualGraph graph;
+
+    //BFS 分层得到的结点层数，-1 表示不可达
+    private final int[] level;
+
+    //每个结点下一条待检查的边（当前弧）
+    private final int[] iter;
+
+    private final int[] queue;
+
+    //DFS 路径上经过的边
+    private final int[] stackArc;
+
+    public MaxFlow(ResidualGraph graph)
+    {
+        this.graph = graph;
+        int nodeCount = graph.getNodeCount();
+        level = new int[nodeCount];
+        iter = new int[nodeCount];
+        queue = new int[nodeCount];
+        stackArc = new int[nodeCount];
+    }
+
+    /**
+     * 在当前残量图上继续增广直到不存在 S 到 T 的增广路径
+     * @return 本次新增的流量
+     */
+    public int solve()
+    {
+        int flow = 0;
+        while(bfs()) {
+            for(int v = 0; v < graph.getNodeCount(); v++)
+                iter[v] = graph.arcBegin(v);
+            int f;
+            while((f = dfs()) > 0)
+                flow += f;
+        }
+        return flow;
+    }
+
+    /**
+     * 将服务器可用的 slot 数目从 1 开始逐层放开，每层都求到最大流再进入下一层，
+     * 由于每层只在上一层的流上继续增广，最终得到的分配在保证本地性最大的同时负载较为均衡
+     * @return 总流量，即分配成功的任务数目
+     */
+    public int solveBalanced()
+    {
+        return solveBalanced(new int[graph.getServerCount() + 1]);
+    }
+
+    /**
+     * 与 solveBalanced() 相同，但服务器已有负载：第 limit 层时服务器还能接受 min(limit, slot) - 负载 个任务，
+     * 因此按照加上已有负载之后的总负载逐层放开
+     * @param initialLoad : 按服务器结点编号存放的已有负载
+     * @return 总流量，即分配成功的任务数目
+     */
+    public int solveBalanced(int[] initialLoad)
+    {
+        int source = ResidualGraph.SOURCE;
+        int maxSlot = 0;
+        int[] slot = new int[graph.arcEnd(source) - graph.arcBegin(source)];
+        for(int arc = graph.arcBegin(source); arc < graph.arcEnd(source); arc++) {
+            slot[arc - graph.arcBegin(source)] = graph.getCapacity(arc);
+            maxSlot = Math.max(maxSlot, graph.getCapacity(arc));
+        }
+
+        int flow = 0;
+        for(int limit = 1; limit <= maxSlot; limit++) {
+            for(int arc = graph.arcBegin(source); arc < graph.arcEnd(source); arc++) {
+                int capacity = Math.min(limit, slot[arc - graph.arcBegin(source)]) - initialLoad[graph.getHead(arc)];
+                graph.setCapacity(arc, Math.max(0, capacity));
+            }
+            flow += solve();
+        }
+        return flow;
+    }
+
+    private boolean bfs()
+    {
+        for(int v = 0; v < graph.getNodeCount(); v++)
+            level[v] = -1;
+        int head = 0, tail = 0;
+        level[ResidualGraph.SOURCE] = 0;
+        queue[tail++] = ResidualGraph.SOURCE;
+        while(head < tail) {
+            int v = queue[head++];
+            for(int arc = graph.arcBegin(v); arc < graph.arcEnd(v); arc++) {
+                int w = graph.getHead(arc);
+                if(graph.getResidual(arc) > 0 && level[w] == -1) {
+                    level[w] = level[v] + 1;
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return level[graph.getSink()] != -1;
+    }
+
+    /**
+     * 沿分层图寻找一条 S 到 T 的路径并推送其瓶颈流量，用显式栈代替递归
+     * @return 推送的流量，0 表示本阶段的阻塞流已经求完
+     */
+    private int dfs()
+    {
+        int sink = graph.getSink();
+        int top = 0;
+        int v = ResidualGraph.SOURCE;
+        while(true) {
+            if(v == sink) {
+                int bottleneck = Integer.MAX_VALUE;
+                for(int i = 0; i < top; i++)
+                    bottleneck = Math.min(bottleneck, graph.getResidual(stackArc[i]));
+                for(int i = 0; i < top; i++)
+                    graph.push(stackArc[i], bottleneck);
+                return bottleneck;
+            }
+
+            int end = graph.arcEnd(v);
+            while(iter[v] < end) {
+                int arc = iter[v];
+                if(graph.getResidual(arc) > 0 && level[graph.getHead(arc)] == level[v] + 1)
+                    break;
+                iter[v]++;
+            }
+
+            if(iter[v] < end) {
+                stackArc[top++] = iter[v];
+                v = graph.getHead(iter[v]);
+            }
+            else {
+                //当前结点无法到达 T，将其移出分层图并回退一步
+                if(top == 0)
+                    return 0;
+                level[v] = -1;
+                v = graph.getTail(stackArc[--top]);
+                iter[v]++;
+            }
+        }
+    }
+}
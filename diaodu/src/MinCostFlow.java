@@ -0,0 +1,209 @@
+import java.util.Arrays;
+
+/**
+ * 最小费用最大流：采用带 Johnson 势函数的逐次最短路算法。
+ * 每一轮先用 Dijkstra 求出各结点到 S 的最短距离并更新势函数，之后所有约化费用为 0 的可用边构成的子图中
+ * 的路径都是当前的最短增广路径，在该子图上按 Dinic 的方式分层并推送阻塞流，一轮即可增广多条路径。
+ * 边的费用由调用者给出，cost[arc] 为边 arc 的单位费用，反向边的费用必须为其相反数
+ */
+public class MinCostFlow
+{
+    private static final long INF = Long.MAX_VALUE / 4;
+
+    private final ResidualGraph graph;
+
+    private final int[] cost;
+
+    //Johnson 势函数，保证约化费用 cost + potential[u] - potential[v] 非负
+    private final long[] potential;
+
+    private final long[] dist;
+
+    //Dinic 分层与当前弧
+    private final int[] level;
+    private final int[] iter;
+    private final int[] queue;
+    private final int[] stackArc;
+
+    //Dijkstra 使用的二叉堆，元素为 (距离, 结点)，过期元素在弹出时丢弃
+    private long[] heapDist;
+    private int[] heapNode;
+    private int heapSize;
+
+    private long totalCost = 0;
+
+    public MinCostFlow(ResidualGraph graph, int[] cost)
+    {
+        this.graph = graph;
+        this.cost = cost;
+        int nodeCount = graph.getNodeCount();
+        potential = new long[nodeCount];
+        dist = new long[nodeCount];
+        level = new int[nodeCount];
+        iter = new int[nodeCount];
+        queue = new int[nodeCount];
+        stackArc = new int[nodeCount];
+        heapDist = new long[nodeCount];
+        heapNode = new int[nodeCount];
+    }
+
+    /**
+     * 求 S 到 T 的最小费用最大流，要求初始时残量图中可用边的费用均非负
+     * @return 流量
+     */
+    public int solve()
+    {
+        int flow = 0;
+        while(dijkstra()) {
+            //距离超过汇点的结点（包括不可达结点）按汇点的距离更新势函数，约化费用仍保持非负
+            long sinkDist = dist[graph.getSink()];
+            for(int v = 0; v < graph.getNodeCount(); v++)
+                potential[v] += Math.min(dist[v], sinkDist);
+            while(bfs()) {
+                for(int v = 0; v < graph.getNodeCount(); v++)
+                    iter[v] = graph.arcBegin(v);
+                int f;
+                while((f = dfs()) > 0)
+                    flow += f;
+            }
+        }
+        return flow;
+    }
+
+    //已推送的流的总费用
+    public long getTotalCost()
+    {
+        return totalCost;
+    }
+
+    private long reducedCost(int arc)
+    {
+        return cost[arc] + potential[graph.getTail(arc)] - potential[graph.getHead(arc)];
+    }
+
+    private boolean dijkstra()
+    {
+        Arrays.fill(dist, INF);
+        heapSize = 0;
+        dist[ResidualGraph.SOURCE] = 0;
+        heapPush(0, ResidualGraph.SOURCE);
+        while(heapSize > 0) {
+            long d = heapDist[0];
+            int v = heapNode[0];
+            heapPop();
+            if(d > dist[v])
+                continue;
+            for(int i = graph.liveBegin(v); i < graph.liveEnd(v); i++) {
+                int arc = graph.getLiveArc(i);
+                int w = graph.getHead(arc);
+                long nd = d + reducedCost(arc);
+                if(nd < dist[w]) {
+                    dist[w] = nd;
+                    heapPush(nd, w);
+                }
+            }
+        }
+        return dist[graph.getSink()] < INF;
+    }
+
+    //只保留约化费用为 0 的可用边进行分层，这些边上的路径均为最短增广路径
+    private boolean bfs()
+    {
+        Arrays.fill(level, -1);
+        int head = 0, tail = 0;
+        level[ResidualGraph.SOURCE] = 0;
+        queue[tail++] = ResidualGraph.SOURCE;
+        while(head < tail) {
+            int v = queue[head++];
+            for(int i = graph.liveBegin(v); i < graph.liveEnd(v); i++) {
+                int arc = graph.getLiveArc(i);
+                int w = graph.getHead(arc);
+                if(level[w] == -1 && reducedCost(arc) == 0) {
+                    level[w] = level[v] + 1;
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return level[graph.getSink()] != -1;
+    }
+
+    private boolean admissible(int arc, int v)
+    {
+        return graph.getResidual(arc) > 0 && level[graph.getHead(arc)] == level[v] + 1 && reducedCost(arc) == 0;
+    }
+
+    private int dfs()
+    {
+        int sink = graph.getSink();
+        int top = 0;
+        int v = ResidualGraph.SOURCE;
+        while(true) {
+            if(v == sink) {
+                int bottleneck = Integer.MAX_VALUE;
+                for(int i = 0; i < top; i++)
+                    bottleneck = Math.min(bottleneck, graph.getResidual(stackArc[i]));
+                for(int i = 0; i < top; i++) {
+                    graph.push(stackArc[i], bottleneck);
+                    totalCost += (long) bottleneck * cost[stackArc[i]];
+                }
+                return bottleneck;
+            }
+
+            int end = graph.arcEnd(v);
+            while(iter[v] < end && !admissible(iter[v], v))
+                iter[v]++;
+
+            if(iter[v] < end) {
+                stackArc[top++] = iter[v];
+                v = graph.getHead(iter[v]);
+            }
+            else {
+                if(top == 0)
+                    return 0;
+                level[v] = -1;
+                v = graph.getTail(stackArc[--top]);
+                iter[v]++;
+            }
+        }
+    }
+
+    private void heapPush(long d, int v)
+    {
+        if(heapSize == heapDist.length) {
+            heapDist = Arrays.copyOf(heapDist, heapSize * 2);
+            heapNode = Arrays.copyOf(heapNode, heapSize * 2);
+        }
+        int i = heapSize++;
+        while(i > 0) {
+            int parent = (i - 1) >>> 1;
+            if(heapDist[parent] <= d)
+                break;
+            heapDist[i] = heapDist[parent];
+            heapNode[i] = heapNode[parent];
+            i = parent;
+        }
+        heapDist[i] = d;
+        heapNode[i] = v;
+    }
+
+    private void heapPop()
+    {
+        long d = heapDist[--heapSize];
+        int v = heapNode[heapSize];
+        int i = 0;
+        while(true) {
+            int child = 2 * i + 1;
+            if(child >= heapSize)
+                break;
+            if(child + 1 < heapSize && heapDist[child + 1] < heapDist[child])
+                child++;
+            if(heapDist[child] >= d)
+                break;
+            heapDist[i] = heapDist[child];
+            heapNode[i] = heapNode[child];
+            i = child;
+        }
+        heapDist[i] = d;
+        heapNode[i] = v;
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * 按上三角压缩存储的紧密度矩阵：只保存 i < j 的元素，每个元素占一个字节（取值 0..127），
+ * 相比 int[taskCount][taskCount+1] 内存占用降为约 1/8。
+ * 第 i 行的元素 (i, i+1)..(i, n) 连续存放，元素总数超过单个数组的长度上限时分页存放
+ */
+public class PackedAffinityMatrix implements AffinityMatrix
+{
+    //每页 2^30 个字节
+    private static final int PAGE_BITS = 30;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final int taskCount;
+
+    private final byte[][] pages;
+
+    public PackedAffinityMatrix(int taskCount)
+    {
+        this.taskCount = taskCount;
+        long size = getSize(taskCount);
+        int pageCount = (int) ((size + PAGE_SIZE - 1) >>> PAGE_BITS);
+        pages = new byte[pageCount][];
+        for(int p = 0; p < pageCount; p++)
+            pages[p] = new byte[(int) Math.min(PAGE_SIZE, size - ((long) p << PAGE_BITS))];
+    }
+
+    //上三角部分的元素个数
+    public static long getSize(int taskCount)
+    {
+        return (long) taskCount * (taskCount - 1) / 2;
+    }
+
+    /**
+     * 元素 (i, j) 在上三角压缩存储中的位置，要求 1 <= i < j <= taskCount
+     * 第 i 行之前共有 (i-1)(2n-i)/2 个元素
+     */
+    public static long getIndex(int taskCount, int i, int j)
+    {
+        return (long) (i - 1) * (2L * taskCount - i) / 2 + (j - i - 1);
+    }
+
+    //按页存放的全部元素，用于直接读写快照
+    byte[][] getPages()
+    {
+        return pages;
+    }
+
+    @Override
+    public int getTaskCount()
+    {
+        return taskCount;
+    }
+
+    @Override
+    public int get(int i, int j)
+    {
+        if(i == j)
+            return 0;
+        if(i > j) {
+            int k = i;
+            i = j;
+            j = k;
+        }
+        long index = getIndex(taskCount, i, j);
+        return pages[(int) (index >>> PAGE_BITS)][(int) (index & PAGE_MASK)];
+    }
+
+    /**
+     * 设置两个任务之间的紧密度，不同行的元素互不重叠，因此可以由多个线程按行并行填充
+     * @param i : 任务编号
+     * @param j : 任务编号
+     * @param value : 紧密度，取值 0..127
+     * @throws IllegalArgumentException 紧密度不在 0..127 之间
+     */
+    public void set(int i, int j, int value)
+    {
+        if(value < 0 || value > Byte.MAX_VALUE)
+            throw new IllegalArgumentException("任务 " + i + " 与 " + j + " 的紧密度 " + value + " 不在 0.." + Byte.MAX_VALUE + " 之间");
+        if(i == j)
+            return;
+        if(i > j) {
+            int k = i;
+            i = j;
+            j = k;
+        }
+        long index = getIndex(taskCount, i, j);
+        pages[(int) (index >>> PAGE_BITS)][(int) (index & PAGE_MASK)] = (byte) value;
+    }
+}
@@ -1,60 +1,85 @@
 import java.util.*;
 
 /**
- * 随机分配
+ * 随机分配。对象只保存种子，每次分配都由种子新建随机数生成器，因此可以被多个线程同时调用，
+ * 相同的种子和模型总是得到相同的分配。分配结果中的本地任务数目由 Assignment 给出
  */
-public class RandomAllocation {
+public class RandomAllocation implements Scheduler {
 
-    //记录有多少任务分配后对于分配的服务器来说属于本地任务
-    private int localTaskCount = 0;
+    //选取服务器所用的种子
+    private final long seed;
 
-    public int getLocalTaskCount(){
-        return localTaskCount;
+    public RandomAllocation(){
+        this(DEFAULT_SEED);
+    }
+
+    /**
+     * @param seed ：选取服务器所用的种子
+     */
+    public RandomAllocation(long seed){
+        this.seed = seed;
     }
 
     public static void main(String[] args){
         RandomAllocation rm = new RandomAllocation();
-        List<Server> servers = rm.getAllocation(300,1000);
-        //System.out.println(servers);
-        System.out.println(rm.getLocalTaskCount());
+        ClusterModel model = new ClusterModel(new DataSource(300, 1000));
+        List<Server> servers = rm.getAllocation(model);
+        System.out.println(Assignment.fromServers(model, servers).getLocalTaskCount());
     }
 
     public List<Server> getAllocation(int serverCount, int taskCount){
+        return getAllocation(new DataSource(serverCount, taskCount));
+    }
 
-        DataSource ds = new DataSource(serverCount, taskCount);
+    public List<Server> getAllocation(DataSource ds){
+        return getAllocation(new ClusterModel(ds));
+    }
+
+    @Override
+    public Assignment schedule(ClusterModel model){
+        return Assignment.fromServers(model, getAllocation(model));
+    }
 
-        System.out.println(ds.getServers().size());
-        List<Server> servers = new ArrayList<>(ds.getServers());
+    /**
+     * 每个任务从仍有空闲 slot 的服务器中等概率随机选取一个。仍有空闲 slot 的服务器存放在数组的前 openCount 个位置，
+     * 服务器的 slot 用完后与最后一个位置交换并移出，因此每次选取为 O(1)。
+     * 与原先的实现相同，返回的服务器的 slot 为分配后剩余的 slot 数目。任务数目多于空闲 slot 总数时，
+     * 所有服务器的 slot 用完后剩余的任务不再分配（原先的实现此时会一直循环）
+     * @param model : 集群模型，服务器集合由模型新建
+     * @return 分配结果
+     */
+    public List<Server> getAllocation(ClusterModel model){
 
-        //key:服务器名  value:该服务器的本地任务集合
-        Map<String,Set<String>> preferedTasks = ds.getPreferedTasks();
-        //System.out.println(preferedTasks);
+        List<Server> servers = model.newServers();
 
         //待分配任务集合
-        List<String> taskList = new ArrayList<>(ds.getTaskSet());
-
-        int index = 0;
-        int totalServerNum = servers.size();
-
-        Random random = new Random();
-        while(index < taskList.size()){
-            String task = taskList.get(index);
-
-            //从服务器集合中随机选取一个服务器
-            int randomServerIndex = random.nextInt(totalServerNum);
-            Server server = servers.get(randomServerIndex);
-
-            //服务器具有空闲的slot数目
-            if(server.getSlot() > 0){
-                server.addTask(task);
-                server.setSlot(server.getSlot() - 1);
-                //当前分配的任务在服务器的本地任务集合中，更新totalLocalTask
-                if(preferedTasks.containsKey(server.getServerName())){
-                    if(preferedTasks.get(server.getServerName()).contains(task))
-                        localTaskCount++;
-                }
-                index++;
-            }
+        int[] tasks = model.getTasks();
+        IdRegistry registry = model.getRegistry();
+
+        //openServers 的前 openCount 个位置为仍有空闲 slot 的服务器下标，freeSlot[下标] 为该服务器剩余的 slot 数目
+        int[] openServers = new int[servers.size()];
+        int[] freeSlot = new int[servers.size()];
+        int openCount = 0;
+        for(int i = 0; i < servers.size(); i++){
+            freeSlot[i] = servers.get(i).getSlot() - servers.get(i).getAllocatedTask().size();
+            if(freeSlot[i] > 0)
+                openServers[openCount++] = i;
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        for(int index = 0; index < tasks.length && openCount > 0; index++){
+            String task = registry.getTaskName(tasks[index]);
+
+            //从具有空闲slot的服务器集合中随机选取一个服务器
+            int position = random.nextInt(openCount);
+            int serverIndex = openServers[position];
+            Server server = servers.get(serverIndex);
+
+            server.addTask(task);
+            server.setSlot(server.getSlot() - 1);
+            //服务器的slot用完，与最后一个仍有空闲slot的服务器交换位置后移出
+            if(--freeSlot[serverIndex] == 0)
+                openServers[position] = openServers[--openCount];
         }
         return servers;
     }
@@ -0,0 +1,412 @@
+import java.util.*;
+
+/**
+ * 残量图：用稠密的整数编号代替 "s1->t1" 这种字符串路径来表示二分图
+ * 结点编号：0 为源点 S，1..serverCount 为编号 1..n 的服务器，serverCount+1..serverCount+taskCount 为编号 1..m 的任务，
+ * 最后一个结点为汇点 T，服务器与任务的编号由 IdRegistry 给出。所有边按起点压缩存储（CSR），每条边都有一条成对的反向边，
+ * 因此沿一条边走过一次流只需要修改两条边的残留容量，不再创建新的 Edge 对象
+ */
+public class ResidualGraph
+{
+    //源点 S 的编号
+    public static final int SOURCE = 0;
+
+    //服务器、任务名称与编号之间的映射，在图副本之间共享
+    private final IdRegistry registry;
+
+    private final int serverCount;
+
+    private final int taskCount;
+
+    //汇点 T 的编号
+    private final int sink;
+
+    //arcBegin[v] 到 arcBegin[v+1] 之间的边均以结点 v 为起点
+    private final int[] arcBegin;
+
+    //边的终点
+    private final int[] arcHead;
+
+    //与当前边成对的反向边
+    private final int[] arcReverse;
+
+    //边的残留容量，每个图副本单独拥有
+    private final int[] residual;
+
+    //出边邻接索引：按起点分段存放边的编号，每段中残留容量大于 0 的边排在前 liveCount[v] 个位置，
+    //推送流量时增量维护，使得枚举一个结点的可用出边只需要 O(出度) 的时间
+    private final int[] liveArcs;
+
+    //边在 liveArcs 中的位置
+    private final int[] livePosition;
+
+    //以结点 v 为起点并且残留容量大于 0 的边的数目
+    private final int[] liveCount;
+
+    private ResidualGraph(IdRegistry registry, int serverCount, int taskCount, int[] arcBegin, int[] arcHead,
+                          int[] arcReverse, int[] residual)
+    {
+        this(registry, serverCount, taskCount, arcBegin, arcHead, arcReverse, residual,
+                new int[arcHead.length], new int[arcHead.length], new int[arcBegin.length - 1]);
+        for(int v = 0; v < liveCount.length; v++) {
+            int live = arcBegin[v];
+            for(int arc = arcBegin[v]; arc < arcBegin[v + 1]; arc++) {
+                if(residual[arc] > 0)
+                    liveArcs[live++] = arc;
+            }
+            liveCount[v] = live - arcBegin[v];
+            for(int arc = arcBegin[v]; arc < arcBegin[v + 1]; arc++) {
+                if(residual[arc] <= 0)
+                    liveArcs[live++] = arc;
+            }
+            for(int i = arcBegin[v]; i < arcBegin[v + 1]; i++)
+                livePosition[liveArcs[i]] = i;
+        }
+    }
+
+    private ResidualGraph(IdRegistry registry, int serverCount, int taskCount, int[] arcBegin, int[] arcHead,
+                          int[] arcReverse, int[] residual, int[] liveArcs, int[] livePosition, int[] liveCount)
+    {
+        this.registry = registry;
+        this.serverCount = serverCount;
+        this.taskCount = taskCount;
+        this.sink = serverCount + taskCount + 1;
+        this.arcBegin = arcBegin;
+        this.arcHead = arcHead;
+        this.arcReverse = arcReverse;
+        this.residual = residual;
+        this.liveArcs = liveArcs;
+        this.livePosition = livePosition;
+        this.liveCount = liveCount;
+    }
+
+    /**
+     * 由 DataSource 中的边集合构建残量图：S->服务器 的容量为服务器的 slot 数目，服务器->任务、任务->T 的容量为 1
+     * @param edges : key:路径  value:该路径对应的边对象
+     * @param servers : 服务器集合
+     * @param registry : 服务器、任务的编号注册表，edges 中出现的名称均已注册
+     * @return
+     */
+    public static ResidualGraph fromEdges(Map<String, Edge> edges, List<Server> servers, IdRegistry registry)
+    {
+        Builder builder = new Builder(registry);
+        for(Server server : servers)
+            builder.addEdge(SOURCE, builder.node(server.getServerName()), server.getSlot());
+        for(Edge edge : edges.values())
+            builder.addEdge(builder.node(edge.getStart()), builder.node(edge.getEnd()), 1);
+        return builder.build();
+    }
+
+    /**
+     * 复制一份残量图，结点与边的结构在副本之间共享，只复制残留容量
+     * @return
+     */
+    public ResidualGraph copy()
+    {
+        return new ResidualGraph(registry, serverCount, taskCount, arcBegin, arcHead, arcReverse, residual.clone(),
+                liveArcs.clone(), livePosition.clone(), liveCount.clone());
+    }
+
+    public int getServerCount()
+    {
+        return serverCount;
+    }
+
+    public int getTaskCount()
+    {
+        return taskCount;
+    }
+
+    public int getNodeCount()
+    {
+        return sink + 1;
+    }
+
+    public int getArcCount()
+    {
+        return arcHead.length;
+    }
+
+    public int getSink()
+    {
+        return sink;
+    }
+
+    public boolean isServer(int node)
+    {
+        return node >= 1 && node <= serverCount;
+    }
+
+    public boolean isTask(int node)
+    {
+        return node > serverCount && node < sink;
+    }
+
+    //编号为 task 的任务对应的结点，服务器的结点编号与服务器编号相同
+    public int getTaskNode(int task)
+    {
+        return serverCount + task;
+    }
+
+    //任务结点对应的任务编号
+    public int getTaskId(int node)
+    {
+        return node - serverCount;
+    }
+
+    public IdRegistry getRegistry()
+    {
+        return registry;
+    }
+
+    //以结点 node 为起点的第一条边
+    public int arcBegin(int node)
+    {
+        return arcBegin[node];
+    }
+
+    //以结点 node 为起点的最后一条边的下一个位置
+    public int arcEnd(int node)
+    {
+        return arcBegin[node + 1];
+    }
+
+    //以结点 node 为起点并且残留容量大于 0 的边在 liveArcs 中的起始位置
+    public int liveBegin(int node)
+    {
+        return arcBegin[node];
+    }
+
+    //以结点 node 为起点并且残留容量大于 0 的边在 liveArcs 中的结束位置（不含）
+    public int liveEnd(int node)
+    {
+        return arcBegin[node] + liveCount[node];
+    }
+
+    //liveArcs 中第 i 个位置对应的边
+    public int getLiveArc(int i)
+    {
+        return liveArcs[i];
+    }
+
+    public int getHead(int arc)
+    {
+        return arcHead[arc];
+    }
+
+    public int getTail(int arc)
+    {
+        return arcHead[arcReverse[arc]];
+    }
+
+    public int getReverse(int arc)
+    {
+        return arcReverse[arc];
+    }
+
+    public int getResidual(int arc)
+    {
+        return residual[arc];
+    }
+
+    /**
+     * 获取边 arc 的容量，即残留容量与已经走过的流量之和（反向边的初始容量为 0）
+     * @param arc
+     * @return
+     */
+    public int getCapacity(int arc)
+    {
+        return residual[arc] + residual[arcReverse[arc]];
+    }
+
+    /**
+     * 修改边 arc 的容量，已经走过的流量保持不变
+     * @param arc
+     * @param capacity
+     */
+    public void setCapacity(int arc, int capacity)
+    {
+        setResidual(arc, capacity - residual[arcReverse[arc]]);
+    }
+
+    /**
+     * 获取任务当前所分配到的服务器，即该任务指向服务器并且残留容量大于 0 的边（服务器->任务的流被反向）
+     * @param taskNode : 任务结点编号
+     * @return 服务器结点编号，未分配时为 -1
+     */
+    public int getAssignedServer(int taskNode)
+    {
+        for(int arc = arcBegin[taskNode]; arc < arcBegin[taskNode + 1]; arc++) {
+            if(isServer(arcHead[arc]) && residual[arc] > 0)
+                return arcHead[arc];
+        }
+        return -1;
+    }
+
+    /**
+     * 沿边 arc 推送 amount 单位的流，即原地更新该边与其反向边的残留容量
+     * @param arc
+     * @param amount
+     */
+    public void push(int arc, int amount)
+    {
+        setResidual(arc, residual[arc] - amount);
+        setResidual(arcReverse[arc], residual[arcReverse[arc]] + amount);
+    }
+
+    /**
+     * 从图中移除边 arc 以及它的反向边
+     * @param arc
+     */
+    public void removeArc(int arc)
+    {
+        setResidual(arc, 0);
+        setResidual(arcReverse[arc], 0);
+    }
+
+    /**
+     * 从图中移除与结点 node 相连的所有边。每条边的反向边都以另一端为起点，因此与 node 相连的边
+     * 恰好对应 node 分段中的全部边，只需要 O(度数) 的时间
+     * @param node
+     */
+    public void removeNode(int node)
+    {
+        for(int arc = arcBegin[node]; arc < arcBegin[node + 1]; arc++)
+            removeArc(arc);
+    }
+
+    /**
+     * 修改边的残留容量，若边在可用与不可用之间发生变化，则在其起点的 liveArcs 分段中与分界位置的边交换
+     * @param arc
+     * @param value
+     */
+    private void setResidual(int arc, int value)
+    {
+        boolean wasLive = residual[arc] > 0;
+        residual[arc] = value;
+        if(wasLive == value > 0)
+            return;
+        int tail = getTail(arc);
+        int boundary = value > 0 ? arcBegin[tail] + liveCount[tail]++ : arcBegin[tail] + --liveCount[tail];
+        int position = livePosition[arc];
+        int other = liveArcs[boundary];
+        liveArcs[position] = other;
+        livePosition[other] = position;
+        liveArcs[boundary] = arc;
+        livePosition[arc] = boundary;
+    }
+
+    /**
+     * 获取结点对应的名称，如 "S"、"s1"、"t3"、"T"
+     * @param node
+     * @return
+     */
+    public String getName(int node)
+    {
+        if(node == SOURCE)
+            return "S";
+        if(node == sink)
+            return "T";
+        if(isServer(node))
+            return registry.getServerName(node);
+        return registry.getTaskName(getTaskId(node));
+    }
+
+    /**
+     * 获取名称对应的结点编号
+     * @param name
+     * @return
+     */
+    public int getNode(String name)
+    {
+        return node(name, registry, serverCount);
+    }
+
+    private static int node(String name, IdRegistry registry, int serverCount)
+    {
+        if(name.equals("S"))
+            return SOURCE;
+        if(name.equals("T"))
+            return serverCount + registry.getTaskCount() + 1;
+        int server = registry.getServerId(name);
+        if(server != -1)
+            return server;
+        return serverCount + registry.getTaskId(name);
+    }
+
+    /**
+     * 先收集所有的边，最后按起点计数排序生成压缩邻接数组
+     */
+    public static class Builder
+    {
+        private final IdRegistry registry;
+
+        private final int serverCount;
+
+        private final int taskCount;
+
+        private int[] from = new int[16];
+
+        private int[] to = new int[16];
+
+        private int[] capacity = new int[16];
+
+        //已加入的边数（不含反向边）
+        private int size = 0;
+
+        public Builder(IdRegistry registry)
+        {
+            this.registry = registry;
+            this.serverCount = registry.getServerCount();
+            this.taskCount = registry.getTaskCount();
+        }
+
+        public int node(String name)
+        {
+            return ResidualGraph.node(name, registry, serverCount);
+        }
+
+        /**
+         * 加入一条边 from->to，同时会生成容量为 0 的反向边 to->from
+         */
+        public void addEdge(int from, int to, int capacity)
+        {
+            if(size == this.from.length) {
+                this.from = Arrays.copyOf(this.from, size * 2);
+                this.to = Arrays.copyOf(this.to, size * 2);
+                this.capacity = Arrays.copyOf(this.capacity, size * 2);
+            }
+            this.from[size] = from;
+            this.to[size] = to;
+            this.capacity[size] = capacity;
+            size++;
+        }
+
+        public ResidualGraph build()
+        {
+            int nodeCount = serverCount + taskCount + 2;
+            int[] arcBegin = new int[nodeCount + 1];
+            for(int i = 0; i < size; i++) {
+                arcBegin[from[i] + 1]++;
+                arcBegin[to[i] + 1]++;
+            }
+            for(int v = 0; v < nodeCount; v++)
+                arcBegin[v + 1] += arcBegin[v];
+
+            int[] next = Arrays.copyOf(arcBegin, nodeCount);
+            int[] arcHead = new int[size * 2];
+            int[] arcReverse = new int[size * 2];
+            int[] residual = new int[size * 2];
+            for(int i = 0; i < size; i++) {
+                int arc = next[from[i]]++;
+                int reverseArc = next[to[i]]++;
+                arcHead[arc] = to[i];
+                arcHead[reverseArc] = from[i];
+                arcReverse[arc] = reverseArc;
+                arcReverse[reverseArc] = arc;
+                residual[arc] = capacity[i];
+            }
+            return new ResidualGraph(registry, serverCount, taskCount, arcBegin, arcHead, arcReverse, residual);
+        }
+    }
+}
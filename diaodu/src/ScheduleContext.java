@@ -0,0 +1,282 @@
+import java.util.*;
+
+/**
+ * 一次调度过程所使用的全部可变状态。每次调用调度策略都会新建一个上下文，其中的服务器集合、残量图为副本，
+ * 本地任务集合与待分配任务集合以按编号的计数和标记数组表示，不复制模型中的任何字符串集合。
+ * 调度策略对象本身不保存任何中间结果，同一个对象可以被多个线程同时调用，也可以反复使用
+ */
+public class ScheduleContext
+{
+    //调度所使用的集群模型，只读
+    private final ClusterModel model;
+
+    //服务器集合，本次调度独占
+    private final List<Server> servers;
+
+    //二分图对应的残量图，为模型中残量图的副本
+    private final ResidualGraph graph;
+
+    //服务器、任务名称与编号之间的映射
+    private final IdRegistry registry;
+
+    //localTaskCount[服务器编号] 为该服务器当前的本地任务数目，即尚未从其本地任务集合中移除的任务数目
+    private final int[] localTaskCount;
+
+    //localRemoved[model.getReplicaOffset(任务编号) + k] 表示该任务已从其第 k 个副本服务器的本地任务集合中移除
+    private final boolean[] localRemoved;
+
+    //pending[任务编号] 表示该任务仍在待分配的任务集合中
+    private final boolean[] pending;
+
+    private int pendingCount = 0;
+
+    //taskServer[任务编号] 为该任务分配到的服务器编号，0 表示尚未分配
+    private final int[] taskServer;
+
+    //已分配的任务数目
+    private int allocatedCount = 0;
+
+    //按服务器编号记录的服务器最多可以执行的任务数
+    private final AbilityBucketQueue serverAbility;
+
+    //按服务器编号记录的 slot 数目，取自本次调度的服务器集合
+    private final int[] serverSlot;
+
+    //kernelTask[服务器编号] 为该服务器对应的核任务编号，0 表示没有核任务
+    private final int[] kernelTask;
+
+    //保存走过的流
+    private final List<Flow> flows = new ArrayList<>();
+
+    //任务最近一次分配发生变化时的版本号，用于判断候选流缓存的得分是否过期
+    private final int[] taskVersion;
+
+    //当前的版本号，每次任务的分配发生变化时加 1
+    private int version = 0;
+
+    //调度过程的监听器
+    private final ScheduleListener listener;
+
+    /**
+     * @param model : 集群模型，服务器集合由模型新建
+     */
+    public ScheduleContext(ClusterModel model)
+    {
+        this(model, ScheduleListener.NONE);
+    }
+
+    /**
+     * @param model : 集群模型，服务器集合由模型新建
+     * @param listener : 调度过程的监听器
+     */
+    public ScheduleContext(ClusterModel model, ScheduleListener listener)
+    {
+        this(model, model.newServers(), listener);
+    }
+
+    /**
+     * @param model : 集群模型
+     * @param servers : 本次调度所独占的服务器集合，例如上一阶段调度的结果
+     */
+    public ScheduleContext(ClusterModel model, List<Server> servers)
+    {
+        this(model, servers, ScheduleListener.NONE);
+    }
+
+    /**
+     * @param model : 集群模型
+     * @param servers : 本次调度所独占的服务器集合
+     * @param listener : 调度过程的监听器
+     */
+    public ScheduleContext(ClusterModel model, List<Server> servers, ScheduleListener listener)
+    {
+        this.model = model;
+        this.listener = listener;
+        this.servers = servers;
+        this.graph = model.newResidualGraph();
+        this.registry = model.getRegistry();
+        int serverCount = registry.getServerCount();
+        int taskCount = registry.getTaskCount();
+
+        this.localTaskCount = new int[serverCount + 1];
+        for(int server = 1; server <= serverCount; server++)
+            localTaskCount[server] = model.getLocalTasks(server).length;
+        this.localRemoved = new boolean[model.getReplicaCount()];
+
+        this.pending = new boolean[taskCount + 1];
+        for(int task : model.getTasks())
+            pending[task] = true;
+        this.pendingCount = model.getTasks().length;
+
+        this.serverSlot = new int[serverCount + 1];
+        for(Server server : servers)
+            serverSlot[registry.getServerId(server.getServerName())] = server.getSlot();
+
+        this.taskServer = new int[taskCount + 1];
+        this.kernelTask = new int[serverCount + 1];
+        this.taskVersion = new int[taskCount + 1];
+        this.serverAbility = new AbilityBucketQueue(serverCount);
+    }
+
+    public ClusterModel getModel()
+    {
+        return model;
+    }
+
+    public List<Server> getServers()
+    {
+        return servers;
+    }
+
+    public ResidualGraph getGraph()
+    {
+        return graph;
+    }
+
+    public IdRegistry getRegistry()
+    {
+        return registry;
+    }
+
+    //存放该任务数据的服务器编号，只读。本地任务集合中的任务只会被移除，因此这些服务器是可能仍把该任务作为本地任务的全部服务器
+    public int[] getReplicaServers(int task)
+    {
+        return model.getReplicaServers(task);
+    }
+
+    //服务器当前的本地任务数目
+    public int getLocalTaskCount(int server)
+    {
+        return localTaskCount[server];
+    }
+
+    /**
+     * 将任务从服务器的本地任务集合中移除
+     * @param task : 任务编号
+     * @param server : 服务器编号
+     * @return 任务原先是否在该服务器的本地任务集合中
+     */
+    public boolean removeLocalTask(int task, int server)
+    {
+        int[] replicas = model.getReplicaServers(task);
+        int offset = model.getReplicaOffset(task);
+        for(int k = 0; k < replicas.length; k++) {
+            if(replicas[k] == server && !localRemoved[offset + k]) {
+                localRemoved[offset + k] = true;
+                localTaskCount[server]--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //任务是否仍在待分配的任务集合中
+    public boolean isPending(int task)
+    {
+        return pending[task];
+    }
+
+    /**
+     * 将任务从待分配的任务集合中移除
+     * @param task : 任务编号
+     * @return 任务原先是否在待分配的任务集合中
+     */
+    public boolean removePending(int task)
+    {
+        if(!pending[task])
+            return false;
+        pending[task] = false;
+        pendingCount--;
+        return true;
+    }
+
+    //待分配的任务数目
+    public int getPendingCount()
+    {
+        return pendingCount;
+    }
+
+    //任务分配到的服务器编号，0 表示尚未分配
+    public int getAssignedServer(int task)
+    {
+        return taskServer[task];
+    }
+
+    /**
+     * 将任务分配给服务器（或从原服务器改为分配给该服务器，即回撤），并更新任务的版本号
+     * @param task : 任务编号
+     * @param server : 服务器编号
+     */
+    public void assign(int task, int server)
+    {
+        if(taskServer[task] == 0)
+            allocatedCount++;
+        else if(taskServer[task] != server)
+            listener.onRollback();
+        taskServer[task] = server;
+        taskVersion[task] = ++version;
+    }
+
+    public int getAllocatedCount()
+    {
+        return allocatedCount;
+    }
+
+    /**
+     * 按照服务器编号给出分配到该服务器的任务名，只在写回 Server 的分配结果时使用
+     * @return key:服务器名  value:分配到该服务器的任务名集合
+     */
+    public Map<String, Set<String>> getAllocatedTasksByServer()
+    {
+        Map<String, Set<String>> allocated = new HashMap<>();
+        for(int task = 1; task < taskServer.length; task++) {
+            if(taskServer[task] == 0)
+                continue;
+            String serverName = registry.getServerName(taskServer[task]);
+            Set<String> tasks = allocated.get(serverName);
+            if(tasks == null) {
+                tasks = new HashSet<>();
+                allocated.put(serverName, tasks);
+            }
+            tasks.add(registry.getTaskName(task));
+        }
+        return allocated;
+    }
+
+    public AbilityBucketQueue getServerAbility()
+    {
+        return serverAbility;
+    }
+
+    //服务器的 slot 数目
+    public int getServerSlot(int server)
+    {
+        return serverSlot[server];
+    }
+
+    //服务器对应的核任务编号，0 表示没有核任务
+    public int getKernelTask(int server)
+    {
+        return kernelTask[server];
+    }
+
+    public void setKernelTask(int server, int task)
+    {
+        kernelTask[server] = task;
+    }
+
+    public List<Flow> getFlows()
+    {
+        return flows;
+    }
+
+    public int getTaskVersion(int task)
+    {
+        return taskVersion[task];
+    }
+
+    public ScheduleListener getListener()
+    {
+        return listener;
+    }
+}
@@ -0,0 +1,320 @@
+import java.util.*;
+
+/**
+ * 分配结果的质量评价：本地任务比例、每个服务器的负载分布与方差、slot 利用率，以及分配到同一服务器上的任务之间的紧密度之和。
+ * 这些指标在任务分配、移动、撤销时增量更新，负载方差由负载之和与平方和得到，紧密度的变化只与移动的任务有关：
+ * 任务与某个服务器上任务的紧密度之和，在其邻居数目较少时遍历邻居，否则遍历该服务器上的任务，
+ * 因此调度策略和局部搜索可以在内层循环中使用，不需要每次重新计算。
+ * 服务器的 slot 取自集群模型，不受调度过程中对服务器副本的修改影响。对象本身不是线程安全的
+ */
+public class ScheduleEvaluator
+{
+    private final ClusterModel model;
+
+    //任务之间的紧密度，数据源没有紧密度时为 null，此时紧密度之和始终为 0
+    private final AffinityMatrix relationValue;
+
+    //taskServer[任务编号] 为该任务分配到的服务器编号，0 表示没有分配
+    private final int[] taskServer;
+
+    //serverTasks[服务器编号][0..load) 为分配到该服务器的任务，position[任务编号] 为任务在其中的下标，用于 O(1) 移除
+    private final int[][] serverTasks;
+    private final int[] position;
+
+    private final int[] serverLoad;
+
+    private final int[] serverSlot;
+
+    private final long totalSlot;
+
+    private int assignedCount = 0;
+
+    private int localTaskCount = 0;
+
+    //负载的平方和，负载之和即 assignedCount
+    private long loadSquareSum = 0;
+
+    //分配到同一服务器上的任务对之间的紧密度之和，每对任务只计一次
+    private long totalAffinity = 0;
+
+    //计算任务与某个服务器上任务的紧密度之和时遍历邻居所使用的访问者
+    private final AffinityCollector collector = new AffinityCollector();
+
+    /**
+     * 所有任务均未分配
+     * @param model : 集群模型
+     */
+    public ScheduleEvaluator(ClusterModel model)
+    {
+        this.model = model;
+        this.relationValue = model.getRelationValue();
+        int serverCount = model.getServerCount();
+        int taskCount = model.getTaskCount();
+        taskServer = new int[taskCount + 1];
+        position = new int[taskCount + 1];
+        serverTasks = new int[serverCount + 1][];
+        serverLoad = new int[serverCount + 1];
+        serverSlot = new int[serverCount + 1];
+        long totalSlot = 0;
+        for(int server = 1; server <= serverCount; server++) {
+            serverSlot[server] = model.getServerSlot(server);
+            serverTasks[server] = new int[Math.max(1, serverSlot[server])];
+            totalSlot += serverSlot[server];
+        }
+        this.totalSlot = totalSlot;
+    }
+
+    /**
+     * 由分配结果构建
+     * @param assignment : 调度策略的分配结果
+     */
+    public ScheduleEvaluator(Assignment assignment)
+    {
+        this(assignment.getModel());
+        for(int task = 1; task <= model.getTaskCount(); task++) {
+            if(assignment.getServer(task) != 0)
+                assign(task, assignment.getServer(task));
+        }
+    }
+
+    /**
+     * 将任务分配给服务器，任务已分配时从原服务器移动到该服务器
+     * @param task : 任务编号
+     * @param server : 服务器编号，为 0 时撤销该任务的分配
+     */
+    public void assign(int task, int server)
+    {
+        int preServer = taskServer[task];
+        if(preServer == server)
+            return;
+        if(preServer != 0)
+            remove(task, preServer);
+        if(server != 0)
+            add(task, server);
+    }
+
+    //撤销任务的分配
+    public void unassign(int task)
+    {
+        assign(task, 0);
+    }
+
+    /**
+     * 将任务移动到服务器后紧密度之和的变化量，不修改当前的分配
+     * @param task : 任务编号
+     * @param server : 服务器编号，为 0 表示撤销该任务的分配
+     * @return
+     */
+    public long getAffinityDelta(int task, int server)
+    {
+        int preServer = taskServer[task];
+        if(preServer == server)
+            return 0;
+        long delta = 0;
+        if(preServer != 0)
+            delta -= getAffinity(task, preServer);
+        if(server != 0)
+            delta += getAffinity(task, server);
+        return delta;
+    }
+
+    /**
+     * 任务与分配到某个服务器上的其他任务之间的紧密度之和
+     * @param task : 任务编号
+     * @param server : 服务器编号
+     * @return
+     */
+    public long getAffinity(int task, int server)
+    {
+        if(relationValue == null || serverLoad[server] == 0)
+            return 0;
+        if(relationValue.getNeighborCount(task) < serverLoad[server]) {
+            collector.reset(task, server);
+            relationValue.forEachNeighbor(task, collector);
+            return collector.sum;
+        }
+        long sum = 0;
+        int[] tasks = serverTasks[server];
+        for(int k = 0; k < serverLoad[server]; k++) {
+            if(tasks[k] != task)
+                sum += relationValue.get(task, tasks[k]);
+        }
+        return sum;
+    }
+
+    private void add(int task, int server)
+    {
+        totalAffinity += getAffinity(task, server);
+        int load = serverLoad[server];
+        if(load == serverTasks[server].length)
+            serverTasks[server] = Arrays.copyOf(serverTasks[server], load * 2);
+        serverTasks[server][load] = task;
+        position[task] = load;
+        serverLoad[server] = load + 1;
+        loadSquareSum += 2L * load + 1;
+        taskServer[task] = server;
+        assignedCount++;
+        if(model.isLocal(task, server))
+            localTaskCount++;
+    }
+
+    private void remove(int task, int server)
+    {
+        //用最后一个任务填补空位
+        int load = serverLoad[server] - 1;
+        int[] tasks = serverTasks[server];
+        int moved = tasks[load];
+        tasks[position[task]] = moved;
+        position[moved] = position[task];
+        serverLoad[server] = load;
+        loadSquareSum -= 2L * load + 1;
+        taskServer[task] = 0;
+        assignedCount--;
+        if(model.isLocal(task, server))
+            localTaskCount--;
+        totalAffinity -= getAffinity(task, server);
+    }
+
+    public ClusterModel getModel()
+    {
+        return model;
+    }
+
+    //任务分配到的服务器编号，0 表示没有分配
+    public int getServer(int task)
+    {
+        return taskServer[task];
+    }
+
+    public int getAssignedCount()
+    {
+        return assignedCount;
+    }
+
+    public int getLocalTaskCount()
+    {
+        return localTaskCount;
+    }
+
+    //本地任务数目占全部任务数目的比例
+    public double getLocalityRatio()
+    {
+        return model.getTaskCount() == 0 ? 0 : (double) localTaskCount / model.getTaskCount();
+    }
+
+    //服务器的负载，即分配到该服务器的任务数目
+    public int getServerLoad(int server)
+    {
+        return serverLoad[server];
+    }
+
+    //按服务器编号给出的负载，下标 0 不使用
+    public int[] getServerLoads()
+    {
+        return serverLoad.clone();
+    }
+
+    /**
+     * 负载分布
+     * @return distribution[k] 为负载为 k 的服务器数目
+     */
+    public int[] getLoadDistribution()
+    {
+        int[] distribution = new int[getMaxLoad() + 1];
+        for(int server = 1; server < serverLoad.length; server++)
+            distribution[serverLoad[server]]++;
+        return distribution;
+    }
+
+    public int getMaxLoad()
+    {
+        int max = 0;
+        for(int server = 1; server < serverLoad.length; server++)
+            max = Math.max(max, serverLoad[server]);
+        return max;
+    }
+
+    public double getLoadMean()
+    {
+        int serverCount = model.getServerCount();
+        return serverCount == 0 ? 0 : (double) assignedCount / serverCount;
+    }
+
+    //所有服务器负载的方差
+    public double getLoadVariance()
+    {
+        int serverCount = model.getServerCount();
+        if(serverCount == 0)
+            return 0;
+        double mean = getLoadMean();
+        return Math.max(0, (double) loadSquareSum / serverCount - mean * mean);
+    }
+
+    //已分配的任务数目占 slot 总数的比例
+    public double getSlotUtilization()
+    {
+        return totalSlot == 0 ? 0 : (double) assignedCount / totalSlot;
+    }
+
+    //服务器的 slot 利用率，slot 为 0 时返回 0
+    public double getSlotUtilization(int server)
+    {
+        return serverSlot[server] == 0 ? 0 : (double) serverLoad[server] / serverSlot[server];
+    }
+
+    //负载超过 slot 数目的服务器数目
+    public int getOverloadedServerCount()
+    {
+        int count = 0;
+        for(int server = 1; server < serverLoad.length; server++) {
+            if(serverLoad[server] > serverSlot[server])
+                count++;
+        }
+        return count;
+    }
+
+    //分配到同一服务器上的任务之间的紧密度之和
+    public long getTotalAffinity()
+    {
+        return totalAffinity;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ScheduleEvaluator{assigned=" + assignedCount
+                + ", locality=" + String.format("%.4f", getLocalityRatio())
+                + ", loadMean=" + String.format("%.3f", getLoadMean())
+                + ", loadVariance=" + String.format("%.3f", getLoadVariance())
+                + ", maxLoad=" + getMaxLoad()
+                + ", slotUtilization=" + String.format("%.4f", getSlotUtilization())
+                + ", overloaded=" + getOverloadedServerCount()
+                + ", affinity=" + totalAffinity + '}';
+    }
+
+    /**
+     * 累加任务与分配到指定服务器上的邻居之间的紧密度
+     */
+    private class AffinityCollector implements AffinityMatrix.NeighborConsumer
+    {
+        private int task;
+
+        private int server;
+
+        private long sum;
+
+        private void reset(int task, int server)
+        {
+            this.task = task;
+            this.server = server;
+            this.sum = 0;
+        }
+
+        @Override
+        public void accept(int neighbor, int value)
+        {
+            if(neighbor != task && taskServer[neighbor] == server)
+                sum += value;
+        }
+    }
+}
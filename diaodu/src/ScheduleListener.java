@@ -0,0 +1,92 @@
+/**
+ * 调度过程的监听接口：调度策略在各阶段结束时以及搜索增广路径、回撤、丢弃过期流等热点事件发生时调用。
+ * 所有方法均有空的默认实现，不需要监听时使用 NONE，此时热点事件只是一次空方法调用，由 JIT 内联后不再有开销，
+ * 阶段计时也不会调用 System.nanoTime。
+ * 同一个调度策略对象可以被多个线程同时调用，因此实现需要是线程安全的
+ */
+public interface ScheduleListener
+{
+    //不做任何事情的监听器
+    ScheduleListener NONE = new ScheduleListener()
+    {
+        @Override
+        public boolean isEnabled()
+        {
+            return false;
+        }
+    };
+
+    /**
+     * 调度过程的阶段，阶段之间可以嵌套，例如 ScheduleWithWeight 的初始分配中包含 CouplingSchedule 的各个阶段
+     */
+    enum Phase
+    {
+        //ScheduleWithWeight 调用 CouplingSchedule 得到初始分配
+        INITIAL_ALLOCATION,
+        //选取核任务并从残量图中移除
+        KERNEL_SELECTION,
+        //保证本地性的分配（增广路径、HopcroftKarp、MaxFlow 或 MinCostFlow）
+        LOCALITY,
+        //枚举从服务器出发的候选流
+        CANDIDATE_SEARCH,
+        //将分配结果写回服务器
+        WRITE_BACK,
+        //没有本地服务器可用的任务的二次分配
+        REALLOCATE
+    }
+
+    //为 false 时调度策略不对阶段计时
+    default boolean isEnabled()
+    {
+        return true;
+    }
+
+    /**
+     * 一个阶段结束
+     * @param phase : 阶段
+     * @param nanos : 阶段的用时（纳秒）
+     */
+    default void onPhase(Phase phase, long nanos) {}
+
+    //阶段开始的时间，未启用时不计时，返回 0
+    default long startPhase()
+    {
+        return isEnabled() ? System.nanoTime() : 0;
+    }
+
+    /**
+     * 阶段结束，未启用时不做任何事情
+     * @param phase : 阶段
+     * @param start : startPhase 的返回值
+     */
+    default void endPhase(Phase phase, long start)
+    {
+        if(isEnabled())
+            onPhase(phase, System.nanoTime() - start);
+    }
+
+    /**
+     * 一次深度优先搜索结束（寻找增广路径或枚举候选流）
+     * @param visitedNodes : 访问的结点数目
+     * @param scannedArcs : 检查的边数
+     */
+    default void onSearch(int visitedNodes, long scannedArcs) {}
+
+    /**
+     * 沿一条增广路径（或一条候选流）完成了分配
+     * @param length : 路径包含的边数
+     */
+    default void onAugment(int length) {}
+
+    //一个已分配的任务从原服务器回撤并改为分配给其他服务器
+    default void onRollback() {}
+
+    //候选流中的边已经不在残量图中，丢弃该候选流
+    default void onStaleFlow() {}
+
+    /**
+     * 进入二次分配
+     * @param taskCount : 需要二次分配的任务数目
+     */
+    default void onFallback(int taskCount) {}
+}
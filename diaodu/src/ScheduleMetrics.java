@@ -0,0 +1,172 @@
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ScheduleListener 的默认实现：累计各类事件的次数，并用 LogHistogram 记录每个阶段的用时和每次搜索访问的结点数。
+ * 计数器采用 LongAdder，多个线程同时调度时没有锁竞争。可以在两次调度之间调用 reset 清空
+ */
+public class ScheduleMetrics implements ScheduleListener
+{
+    private final Map<Phase, LogHistogram> phaseNanos = new EnumMap<>(Phase.class);
+
+    //每次深度优先搜索访问的结点数
+    private final LogHistogram searchNodes = new LogHistogram();
+
+    private final LongAdder scannedArcs = new LongAdder();
+
+    private final LongAdder augmentations = new LongAdder();
+
+    //所有增广路径的边数之和
+    private final LongAdder augmentedArcs = new LongAdder();
+
+    private final LongAdder rollbacks = new LongAdder();
+
+    private final LongAdder staleFlows = new LongAdder();
+
+    private final LongAdder fallbacks = new LongAdder();
+
+    private final LongAdder fallbackTasks = new LongAdder();
+
+    public ScheduleMetrics()
+    {
+        for(Phase phase : Phase.values())
+            phaseNanos.put(phase, new LogHistogram());
+    }
+
+    @Override
+    public void onPhase(Phase phase, long nanos)
+    {
+        phaseNanos.get(phase).record(nanos);
+    }
+
+    @Override
+    public void onSearch(int visitedNodes, long scannedArcs)
+    {
+        searchNodes.record(visitedNodes);
+        this.scannedArcs.add(scannedArcs);
+    }
+
+    @Override
+    public void onAugment(int length)
+    {
+        augmentations.increment();
+        augmentedArcs.add(length);
+    }
+
+    @Override
+    public void onRollback()
+    {
+        rollbacks.increment();
+    }
+
+    @Override
+    public void onStaleFlow()
+    {
+        staleFlows.increment();
+    }
+
+    @Override
+    public void onFallback(int taskCount)
+    {
+        fallbacks.increment();
+        fallbackTasks.add(taskCount);
+    }
+
+    //阶段用时（纳秒）的分布
+    public LogHistogram getPhaseNanos(Phase phase)
+    {
+        return phaseNanos.get(phase);
+    }
+
+    //阶段的总用时（纳秒）
+    public long getPhaseTotalNanos(Phase phase)
+    {
+        LogHistogram histogram = phaseNanos.get(phase);
+        return Math.round(histogram.getMean() * histogram.getCount());
+    }
+
+    public LogHistogram getSearchNodes()
+    {
+        return searchNodes;
+    }
+
+    public long getSearchCount()
+    {
+        return searchNodes.getCount();
+    }
+
+    public long getScannedArcs()
+    {
+        return scannedArcs.sum();
+    }
+
+    public long getAugmentations()
+    {
+        return augmentations.sum();
+    }
+
+    public long getAugmentedArcs()
+    {
+        return augmentedArcs.sum();
+    }
+
+    public long getRollbacks()
+    {
+        return rollbacks.sum();
+    }
+
+    public long getStaleFlows()
+    {
+        return staleFlows.sum();
+    }
+
+    public long getFallbacks()
+    {
+        return fallbacks.sum();
+    }
+
+    public long getFallbackTasks()
+    {
+        return fallbackTasks.sum();
+    }
+
+    public void reset()
+    {
+        for(LogHistogram histogram : phaseNanos.values())
+            histogram.reset();
+        searchNodes.reset();
+        scannedArcs.reset();
+        augmentations.reset();
+        augmentedArcs.reset();
+        rollbacks.reset();
+        staleFlows.reset();
+        fallbacks.reset();
+        fallbackTasks.reset();
+    }
+
+    //每个发生过的阶段一行（用时单位为微秒），最后一行为各类事件的次数
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        for(Phase phase : Phase.values()) {
+            LogHistogram histogram = phaseNanos.get(phase);
+            if(histogram.getCount() == 0)
+                continue;
+            sb.append(phase).append(" : count=").append(histogram.getCount())
+              .append(", total=").append(getPhaseTotalNanos(phase) / 1000).append(" us")
+              .append(", p50=").append(histogram.getValueAtPercentile(50) / 1000).append(" us")
+              .append(", max=").append(histogram.getMax() / 1000).append(" us\n");
+        }
+        sb.append("searches=").append(getSearchCount())
+          .append(", visitedNodes{").append(searchNodes).append('}')
+          .append(", scannedArcs=").append(getScannedArcs())
+          .append(", augmentations=").append(getAugmentations())
+          .append(", augmentedArcs=").append(getAugmentedArcs())
+          .append(", rollbacks=").append(getRollbacks())
+          .append(", staleFlows=").append(getStaleFlows())
+          .append(", fallbacks=").append(getFallbacks())
+          .append(", fallbackTasks=").append(getFallbackTasks());
+        return sb.toString();
+    }
+}
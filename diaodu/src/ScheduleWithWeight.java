@@ -7,33 +7,93 @@ import java.util.*;
  * 然后再次采用CouplingSchedule分配准则来进行分配任务，只是这次分配每个任务时需要考虑当前分配的任务与固定
  * 在该服务器上核任务的紧密程度。每次选取与当前核任务关联度最大的任务
  */
-public class ScheduleWithWeight {
+public class ScheduleWithWeight implements Scheduler {
 
-    private CouplingSchedule couplingSchedule = new CouplingSchedule();
+    //每次从最大执行能力服务器出发最多保留的候选流数目
+    private static final int MAX_CANDIDATE_FLOWS = 256;
 
-    //图信息
-    private Map<String, Edge> edges = null;
+    //枚举候选流时最多检查的边数
+    private static final long MAX_SEARCH_STEPS = 100000L;
 
-    //保存当前经过的路径，即流
-    private List<Edge> path = new ArrayList<>();
+    //枚举候选流的默认时间预算（纳秒）
+    public static final long SEARCH_BUDGET_NANOS = 100000000L;
 
-    //Key:服务器名  Value:当前任务中存放数据所对应的任务集合列表
-    private Map<String,Set<String>> preferedTasks = new HashMap<>();
+    //reAllocate 临时选取核任务的随机数流，与初始分配时选取核任务的随机数流互不相关
+    private static final long REALLOCATE_STREAM = 0x9E3779B97F4A7C15L;
 
-    //key:服务器 value:服务器最多可以执行的任务数
-    private Map<String,Integer> serverAbility = new HashMap<>();
+    //初始分配所采用的调度策略。调度过程中的可变状态均保存在每次调用新建的 ScheduleContext 中
+    private final CouplingSchedule couplingSchedule;
 
-    //key:服务器名  value:该服务器的 slot 数目
-    private Map<String,Integer> serverSlot = new HashMap<>();
+    //固定核任务后按关联度分配任务所采用的求解方式
+    private final AffinityEngine affinityEngine;
 
-    //key:服务器名  value:该服务器对应的核任务
-    private Map<String, String> kernelTasks = new HashMap<>();
+    //调度过程的监听器，初始分配也报告给它
+    private final ScheduleListener listener;
 
-    //key:任务  value:为该任务分配的服务器
-    private Map<String, String> allocatedTask = new HashMap<>();
+    //每次枚举候选流的时间预算（纳秒）
+    private final long searchBudgetNanos;
 
-    //保存走过的流
-    private List<List<Edge>> flows = new ArrayList<>();
+    //选取核任务所用的种子，每次调度都由它新建随机数生成器，因此相同的输入选出相同的核任务
+    private final long seed;
+
+    public ScheduleWithWeight(){
+        this(LocalityEngine.AUGMENT_PATH);
+    }
+
+    /**
+     * @param engine ：初始分配（CouplingSchedule）保证本地性所采用的求解方式
+     */
+    public ScheduleWithWeight(LocalityEngine engine){
+        this(engine, ScheduleListener.NONE);
+    }
+
+    /**
+     * @param engine ：初始分配（CouplingSchedule）保证本地性所采用的求解方式
+     * @param affinityEngine ：固定核任务后按关联度分配任务所采用的求解方式
+     */
+    public ScheduleWithWeight(LocalityEngine engine, AffinityEngine affinityEngine){
+        this(engine, affinityEngine, ScheduleListener.NONE, SEARCH_BUDGET_NANOS, DEFAULT_SEED);
+    }
+
+    public ScheduleWithWeight(LocalityEngine engine, ScheduleListener listener){
+        this(engine, listener, SEARCH_BUDGET_NANOS);
+    }
+
+    /**
+     * @param engine ：初始分配（CouplingSchedule）保证本地性所采用的求解方式
+     * @param listener ：调度过程的监听器
+     * @param searchBudgetNanos ：每次枚举候选流的时间预算（纳秒）。为 Long.MAX_VALUE 时只受 MAX_SEARCH_STEPS 限制，
+     *                          相同的输入总是得到相同的候选流，与机器的快慢无关
+     */
+    public ScheduleWithWeight(LocalityEngine engine, ScheduleListener listener, long searchBudgetNanos){
+        this(engine, listener, searchBudgetNanos, DEFAULT_SEED);
+    }
+
+    /**
+     * @param engine ：初始分配（CouplingSchedule）保证本地性所采用的求解方式
+     * @param listener ：调度过程的监听器
+     * @param searchBudgetNanos ：每次枚举候选流的时间预算（纳秒）
+     * @param seed ：选取核任务所用的种子
+     */
+    public ScheduleWithWeight(LocalityEngine engine, ScheduleListener listener, long searchBudgetNanos, long seed){
+        this(engine, AffinityEngine.CANDIDATE_FLOWS, listener, searchBudgetNanos, seed);
+    }
+
+    /**
+     * @param engine ：初始分配（CouplingSchedule）保证本地性所采用的求解方式
+     * @param affinityEngine ：固定核任务后按关联度分配任务所采用的求解方式
+     * @param listener ：调度过程的监听器
+     * @param searchBudgetNanos ：每次枚举候选流的时间预算（纳秒），只用于 AffinityEngine.CANDIDATE_FLOWS
+     * @param seed ：选取核任务所用的种子
+     */
+    public ScheduleWithWeight(LocalityEngine engine, AffinityEngine affinityEngine, ScheduleListener listener,
+                              long searchBudgetNanos, long seed){
+        this.couplingSchedule = new CouplingSchedule(engine, listener);
+        this.affinityEngine = affinityEngine;
+        this.listener = listener;
+        this.searchBudgetNanos = searchBudgetNanos;
+        this.seed = seed;
+    }
 
     public static void main(String[] args){
 
@@ -42,64 +102,89 @@ public class ScheduleWithWeight {
     }
 
     public List<Server> getTaskAllocation(int serverCount, int taskCount){
+        return getTaskAllocation(new DataSource(serverCount,taskCount));
+    }
+
+    public List<Server> getTaskAllocation(DataSource dataSource){
+        return getTaskAllocation(new ClusterModel(dataSource));
+    }
+
+    @Override
+    public Assignment schedule(ClusterModel model){
+        return Assignment.fromServers(model, getTaskAllocation(model));
+    }
+
+    /**
+     * 按照 affinityEngine 指定的方式分配任务
+     * @param model : 集群模型
+     * @return 最终的分配结果
+     */
+    public List<Server> getTaskAllocation(ClusterModel model){
+        if(affinityEngine == AffinityEngine.MIN_COST_FLOW)
+            return getTaskAllocationByMinCostFlow(model);
+        return getTaskAllocationByCandidateFlows(model);
+    }
+
+    private List<Server> getTaskAllocationByCandidateFlows(ClusterModel model){
 
-        DataSource dataSource = new DataSource(serverCount,taskCount);
         //1、核任务的初始分配
         //2、待分配的任务集合
         //3、任务之间的关联度
-        List<Server> servers = getInitialAllocation(dataSource);
-        Set<String> taskSet = dataSource.getTaskSet();
-        int[][] relationValue = dataSource.getRelationValue();
+        ScheduleContext context = getInitialAllocation(model);
+        List<Server> servers = context.getServers();
+        AffinityMatrix relationValue = model.getRelationValue();
 
-        //1、初始化serverAblity, serverSlot, kernalTasks。更新taskSet(移除核任务)
+        ResidualGraph graph = context.getGraph();
+        AbilityBucketQueue serverAbility = context.getServerAbility();
+        IdRegistry registry = context.getRegistry();
+        List<Flow> flows = context.getFlows();
+
+        //1、初始化serverAblity, kernalTasks。更新待分配的任务集合(移除核任务)
         //2、取服务器可用的 slot 数目与其引用的任务数目的最小值作为当前服务器的最大执行能力
         //3、从待分配的任务集合中移除已分配的核任务
         for(Server s : servers){
-            int ability = Math.min(preferedTasks.get(s.getServerName()).size(), s.getSlot());
-            serverAbility.put(s.getServerName(), ability);
-            serverSlot.put(s.getServerName(), s.getSlot());
+            int serverId = registry.getServerId(s.getServerName());
+            serverAbility.set(serverId, Math.min(context.getLocalTaskCount(serverId), s.getSlot()));
             if(s.getAllocatedTask().size() > 0){
-                String kernalTask = s.getAllocatedTask().get(0);
-                kernelTasks.put(s.getServerName(), kernalTask);
-                if(taskSet.contains(kernalTask))
-                    taskSet.remove(kernalTask);
+                int kernalTask = registry.getTaskId(s.getAllocatedTask().get(0));
+                context.setKernelTask(serverId, kernalTask);
+                context.removePending(kernalTask);
             }
         }
 
-        //获取最大执行能力服务器和从此服务器出发的所有增广路径集合flows
-        String maxAbilityServer = getMaxAbilityServer(serverAbility);
-        AugmentPath.getAllAugmentPath(maxAbilityServer,"T", path, edges);
+        long start = listener.startPhase();
+
+        //获取最大执行能力服务器和从此服务器出发的候选流，候选流按照净节省的费用值从大到小给出
+        int maxAbilityServer = serverAbility.getMax();
+        FlowCandidates candidates = getCandidateFlows(context, registry.getServerName(maxAbilityServer), relationValue);
 
-        while(AugmentPath.flows.size() > 0){
+        while(true){
 
-            //对所有流按照节省的费用值进行排序,每次选择节省费用最大的流
-            sortFlowByFee(maxAbilityServer, relationValue, AugmentPath.flows);
-            while(AugmentPath.flows.size() > 0 && serverAbility.get(maxAbilityServer) > 0){
+            int acceptedFlowCount = flows.size();
+            while(candidates.hasNext() && serverAbility.get(maxAbilityServer) > 0){
                 //1、取出当前 maxAbilityServer 对应的节省最大费用的流
                 //2、利用标记 isDuplicated 判断是否是重复处理的任务
-                //3、利用 recordTasks 来记录当前流中分配给其他服务器的任务
-                int index = AugmentPath.flows.size() - 1;
-                List<Edge> maxValueFlow = AugmentPath.flows.get(index);
+                //3、利用 recordTaskCount 来记录当前流中分配给其他服务器的任务数目
+                Flow maxValueFlow = candidates.next();
                 boolean isExist = true;
-                List<String> recordTasks = new ArrayList<>();
+                int recordTaskCount = 0;
 
-                //判断当前选择的流在更新的图信息中确实存在，若当前流中的某条边不存在，此时移除当前流
-                if(maxValueFlow.size() > 0){
-                    for(Edge edge : maxValueFlow){
-                        if(!edges.containsKey(edge.getPath())){
+                //判断当前选择的流在更新的图信息中确实存在，若当前流中的某条边不存在，此时丢弃当前流
+                if(maxValueFlow.getArcs().length > 0){
+                    for(int arc : maxValueFlow.getArcs()){
+                        if(graph.getResidual(arc) == 0){
                             isExist = false;
                             break;
                         }
-                        //判断当前流中的任务是否已经被分配，若被分配给其他的服务器，将这类任务加入到 recordTasks 集合中。
-                        if (edge.getStart().startsWith("s")) {
-                            String task = edge.getEnd();
-                            if (allocatedTask.containsKey(task))
-                                recordTasks.add(task);
+                        //判断当前流中的任务是否已经被分配，若被分配给其他的服务器，记录这类任务的数目。
+                        if (graph.isServer(graph.getTail(arc))) {
+                            if (context.getAssignedServer(graph.getTaskId(graph.getHead(arc))) != 0)
+                                recordTaskCount++;
                         }
                     }
                 }
                 if(!isExist){
-                    AugmentPath.flows.remove(index);
+                    listener.onStaleFlow();
                     continue;
                 }
 
@@ -107,201 +192,289 @@ public class ScheduleWithWeight {
                 //1、计算当前流中已经被分配的任务所节省下来的费用总和 preValue 和当前流所节省下来的费用总和 curValue
                 //2、若curValue <= preValue 则说明当前流并不会相比于先前流能够节省更多的费用，抛弃当前流
                 //3、若curValue > preValue 此时按照当前流来进行分配任务，并且对那些已经分配的任务流进行回撤
-                //   分配完任务需要更新相关变量（taskSet,allocatedTasks,serverAbility,edges）以及从待处理流中移除当前流
-                if(recordTasks.size() > 0) {
-                    //计算出如果按照当前流来进行分配任务的话，在先前已经被分配的任务进行回撤时损失的开销
-                    int preValue = 0;
-                    for(String recordTask : recordTasks){
-                        //1、该任务分配给的服务器具有核任务时，节省的开销为核任务与该任务之间的通信开销。
-                        //2、该任务分配给的服务器不具有核任务时，节省的通信开销记为 0
-                        String server = allocatedTask.get(recordTask);
-                        if(kernelTasks.containsKey(server)){
-                            String kernalTask = kernelTasks.get(server);
-                            int i = Integer.parseInt(kernalTask.substring(1,kernalTask.length()));
-                            int j = Integer.parseInt(recordTask.substring(1,recordTask.length()));
-                            if(i > j)
-                                preValue += relationValue[j][i];
-                            else
-                                preValue += relationValue[i][j];
-                        }
-                        else
-                            continue;
-                    }
-                    int curValue = getSingleFlowFValue(maxAbilityServer, relationValue, maxValueFlow);
+                //   分配完任务需要更新相关变量（待分配的任务集合,allocatedTasks,serverAbility,graph）
+                if(recordTaskCount > 0) {
+                    //两个费用值在计算候选流得分时已经缓存，取出时流中任务的分配若有变化则已经重新计算
+                    int preValue = maxValueFlow.getLoss();
+                    int curValue = maxValueFlow.getValue();
                     if(curValue > preValue){
-                        for(Edge edge : maxValueFlow){
-                            if(edge.getStart().startsWith("s")){
-                                String server = edge.getStart();
-                                String task = edge.getEnd();
-                                if(allocatedTask.containsKey(task)){
-                                    String preServer = allocatedTask.get(task);
-                                    if(edges.containsKey(task + "->" + preServer))
-                                        edges.remove(task + "->" + preServer);
-                                    Edge e = new Edge(preServer, task);
-                                    edges.put(e.getPath(), e);
-                                    serverAbility.put(preServer, serverAbility.get(preServer)+1);
+                        listener.onAugment(maxValueFlow.getArcs().length);
+                        for(int arc : maxValueFlow.getArcs()){
+                            if(graph.isServer(graph.getTail(arc))){
+                                int server = graph.getTail(arc);
+                                int taskId = graph.getTaskId(graph.getHead(arc));
+                                //先前分配的流 t->preServer 在当前流中，随当前流一起反向
+                                if(context.getAssignedServer(taskId) != 0){
+                                    int preServer = context.getAssignedServer(taskId);
+                                    serverAbility.set(preServer, serverAbility.get(preServer)+1);
                                 }
-                                updateGraph(task, server, serverAbility, serverSlot, preferedTasks);
-                                allocatedTask.put(task,server);
-                                if(taskSet.contains(task))
-                                    taskSet.remove(task);
-                                if(serverAbility.get(server) > 0)
-                                    serverAbility.put(server,serverAbility.get(server) - 1);
+                                updateGraph(taskId, server, context);
+                                context.assign(taskId, server);
+                                context.removePending(taskId);
+                                serverAbility.decrease(server);
                             }
-                            String key = edge.getPath();
-                            if(edges.containsKey(key))
-                                edges.remove(key);
-                            Edge reverseEdge = new Edge(edge.getEnd(), edge.getStart());
-                            edges.put(reverseEdge.getPath(), reverseEdge);
+                            graph.push(arc, 1);
                         }
-                        flows.add(new ArrayList<>(maxValueFlow));
-                        AugmentPath.flows.remove(index);
+                        flows.add(maxValueFlow);
                     }
-                    else
-                        AugmentPath.flows.remove(index);
                 }
 
                 //当前流中的所有任务均在之前没有被分配并且任务不重复的情况下（对于maxAbilityServer而言），此时直接按照流进行分配操作
-                else if(recordTasks.size() == 0) {
-                    for(Edge edge : maxValueFlow) {
-                        if(edge.getStart().startsWith("s")) {
-                            String server = edge.getStart();
-                            String task = edge.getEnd();
-                            updateGraph(task, server, serverAbility, serverSlot, preferedTasks);
-                            allocatedTask.put(task, server);
-                            if(taskSet.contains(task))
-                                taskSet.remove(task);
-                            if(serverAbility.get(server) > 0)
-                                serverAbility.put(server,serverAbility.get(server) - 1);
+                else if(recordTaskCount == 0) {
+                    listener.onAugment(maxValueFlow.getArcs().length);
+                    for(int arc : maxValueFlow.getArcs()) {
+                        if(graph.isServer(graph.getTail(arc))) {
+                            int server = graph.getTail(arc);
+                            int taskId = graph.getTaskId(graph.getHead(arc));
+                            updateGraph(taskId, server, context);
+                            context.assign(taskId, server);
+                            context.removePending(taskId);
+                            serverAbility.decrease(server);
                         }
-                        String key = edge.getPath();
-                        if(edges.containsKey(key))
-                            edges.remove(key);
-                        Edge reverseEdge = new Edge(edge.getEnd(), edge.getStart());
-                        edges.put(reverseEdge.getPath(), reverseEdge);
+                        graph.push(arc, 1);
                     }
-                    flows.add(new ArrayList<>(maxValueFlow));
-                    AugmentPath.flows.remove(index);
+                    flows.add(maxValueFlow);
                 }
             }
-            path.clear();
-            AugmentPath.flows.clear();
+
+            //候选流只保留了有限条，若其中没有一条被采用（包括没有任何候选流），说明从该服务器出发已无法节省更多的费用，
+            //不再选取该服务器，否则两个服务器会被轮流选中而无法结束
+            if(flows.size() == acceptedFlowCount)
+                serverAbility.set(maxAbilityServer, 0);
 
             //为了防止由于增加了限制条件而使得某些服务器始终为最大执行能力的服务器，因此若第二次选取的最大能力服务器
-            //和第一次是同一个服务器，此时需要暂时把这个服务器的执行能力置0，再重新选取，选取后再进行恢复。
-            String preMaxAbilityServer = maxAbilityServer;
-            maxAbilityServer = getMaxAbilityServer(serverAbility);
-            if(maxAbilityServer.equals(preMaxAbilityServer)){
-                int abilty = serverAbility.get(maxAbilityServer);
-                serverAbility.put(maxAbilityServer, 0);
-                maxAbilityServer = getMaxAbilityServer(serverAbility);
-                serverAbility.put(preMaxAbilityServer, abilty);
+            //和第一次是同一个服务器，此时改为选取除该服务器之外执行能力最大的服务器。
+            int preMaxAbilityServer = maxAbilityServer;
+            maxAbilityServer = serverAbility.getMax();
+            if(maxAbilityServer == preMaxAbilityServer)
+                maxAbilityServer = serverAbility.getMaxExcluding(preMaxAbilityServer);
+
+            if(serverAbility.get(maxAbilityServer) == 0 || context.getPendingCount() == 0)
+                break;
+            //重新获取新的最大执行能力服务器对应的候选流
+            candidates = getCandidateFlows(context, registry.getServerName(maxAbilityServer), relationValue);
+        }
+        listener.endPhase(ScheduleListener.Phase.LOCALITY, start);
+
+        start = listener.startPhase();
+        updateServers(servers, context.getAllocatedTasksByServer());
+        listener.endPhase(ScheduleListener.Phase.WRITE_BACK, start);
+        //任务没有被分配完，此时采用遍历法，寻找与服务器上面的kernalTask关联度最大的作为分配的服务器
+        if(context.getPendingCount() != 0){
+            reAllocate(context, relationValue);
+        }
+        return servers;
+    }
+
+    /**
+     * 最小费用流分配方式：固定核任务后，把每条 服务器->任务 边的费用记为 MAX_RELATION_VALUE 减去该任务与服务器核任务的关联度
+     * （服务器没有核任务时记为 MAX_RELATION_VALUE），求 S 到 T 的最小费用最大流。
+     * 得到的分配在本地任务数目最大的前提下，与核任务的关联度之和最大，不再需要逐条枚举候选流
+     * @param serverCount
+     * @param taskCount
+     * @return
+     */
+    public List<Server> getTaskAllocationByMinCostFlow(int serverCount, int taskCount){
+        return getTaskAllocationByMinCostFlow(new DataSource(serverCount,taskCount));
+    }
+
+    public List<Server> getTaskAllocationByMinCostFlow(DataSource dataSource){
+        return getTaskAllocationByMinCostFlow(new ClusterModel(dataSource));
+    }
+
+    public List<Server> getTaskAllocationByMinCostFlow(ClusterModel model){
+
+        ScheduleContext context = getInitialAllocation(model);
+        List<Server> servers = context.getServers();
+        AffinityMatrix relationValue = model.getRelationValue();
+        ResidualGraph graph = context.getGraph();
+        IdRegistry registry = context.getRegistry();
+
+        //记录核任务并从待分配的任务集合中移除，S->服务器 的容量改为固定核任务后剩余的 slot 数目
+        int[] slot = new int[graph.getNodeCount()];
+        for(Server s : servers){
+            int server = registry.getServerId(s.getServerName());
+            if(s.getAllocatedTask().size() > 0){
+                int kernalTask = registry.getTaskId(s.getAllocatedTask().get(0));
+                context.setKernelTask(server, kernalTask);
+                context.removePending(kernalTask);
+            }
+            slot[server] = s.getSlot();
+        }
+        for(int arc = graph.arcBegin(ResidualGraph.SOURCE); arc < graph.arcEnd(ResidualGraph.SOURCE); arc++)
+            graph.setCapacity(arc, slot[graph.getHead(arc)]);
+
+        long start = listener.startPhase();
+
+        //服务器->任务 边的费用，反向边的费用为其相反数，其余边的费用为 0
+        int[] cost = new int[graph.getArcCount()];
+        for(int server = 1; server <= graph.getServerCount(); server++){
+            int kernalTask = context.getKernelTask(server);
+            for(int arc = graph.arcBegin(server); arc < graph.arcEnd(server); arc++){
+                int task = graph.getHead(arc);
+                if(!graph.isTask(task))
+                    continue;
+                int value = kernalTask == 0 ? 0 : relationValue.get(kernalTask, graph.getTaskId(task));
+                cost[arc] = DataSource.MAX_RELATION_VALUE - value;
+                cost[graph.getReverse(arc)] = -cost[arc];
             }
+        }
+        new MinCostFlow(graph, cost).solve();
 
-            if(serverAbility.get(maxAbilityServer) == 0 || taskSet.size() == 0){
-                updateServers(servers, allocatedTask);
-                //任务没有被分配完，此时采用遍历法，寻找与服务器上面的kernalTask关联度最大的作为分配的服务器
-                if(taskSet.size() != 0){
-                    reAllocate(servers, taskSet, kernelTasks, relationValue);
-                }
-                return servers;
+        for(int task = 1; task <= registry.getTaskCount(); task++){
+            if(!context.isPending(task))
+                continue;
+            int server = graph.getAssignedServer(graph.getTaskNode(task));
+            if(server != -1){
+                context.assign(task, server);
+                context.removePending(task);
             }
-            //重新获取新的最大执行能力服务器对应的增广路径
-            AugmentPath.getAllAugmentPath(maxAbilityServer,"T", path, edges);
         }
+        listener.endPhase(ScheduleListener.Phase.LOCALITY, start);
+
+        start = listener.startPhase();
+        updateServers(servers, context.getAllocatedTasksByServer());
+        listener.endPhase(ScheduleListener.Phase.WRITE_BACK, start);
+        //没有本地服务器可用的任务，按照与核任务的关联度进行分配
+        if(context.getPendingCount() != 0)
+            reAllocate(context, relationValue);
         return servers;
     }
 
     /**
-     * 对剩下未分配的任务再重新进行分配,分配规则为选取当前
-     * @param taskSet ：未分配的任务集合
-     * @param kernalTasks ：核任务集合
+     * 对剩下未分配的任务再重新进行分配,分配规则为选取当前与该任务紧密度最大的核任务所在的服务器。
+     * 若任务的邻居数目（紧密度可能大于 0 的任务数）少于服务器数目，则只检查其邻居中作为核任务的任务，否则检查所有服务器的核任务
+     * @param context ：本次调度的上下文，其中待分配的任务即为未分配的任务，并记录了每个服务器的核任务
+     * @param relationValue ：任务之间的紧密度
      */
-    public void reAllocate(List<Server> servers, Set<String> taskSet,
-                           Map<String, String> kernalTasks, int[][] relationValue ){
-
-        Iterator<String> iterator = taskSet.iterator();
-        while (iterator.hasNext()){
-            String unAllocatedTask = iterator.next();
-            int maxValue = -1;
-            String selectedServer = null;
-            List<String> allocatedTask = null;
-
-            for(Server server : servers) {
-                allocatedTask = server.getAllocatedTask();
-                if(allocatedTask != null) {
-                    int slot = server.getSlot();
-                    int taskCount = server.getAllocatedTask().size();
-
-                    //由于在加上核任务时，已经将服务器的slot数目减1，因此这里核任务不考虑在所有已分配的任务之内
-                    if(kernalTasks.containsKey(server.getServerName()))
-                        taskCount -= 1;
-
-                    //当前服务器还有空闲slot可用
-                    if(slot > taskCount){
-                        //若当前服务器不存在核任务，则从其分配的任务中随机选取一个任务暂时作为其核任务用来参与后续计算
-                        String kernalTask = null;
-                        if(kernalTasks.containsKey(server.getServerName()))
-                            kernalTask = kernalTasks.get(server.getServerName());
-                        else if(server.getAllocatedTask().size() > 0) {
-                            int randomIndex = new Random().nextInt(taskCount);
-                            kernalTask = server.getAllocatedTask().get(randomIndex);
-                        }
+    public void reAllocate(ScheduleContext context, AffinityMatrix relationValue){
+
+        List<Server> servers = context.getServers();
+        IdRegistry registry = context.getRegistry();
+        ScheduleListener listener = context.getListener();
+        long start = listener.startPhase();
+        listener.onFallback(context.getPendingCount());
+
+        //kernels[k] 为 servers 中第 k 个服务器的核任务，若当前服务器不存在核任务，则从其分配的任务中随机选取一个任务暂时作为其核任务用来参与后续计算
+        //freeSlots[k] 为该服务器剩余的空闲 slot 数目，kernelOwner[任务编号] 为以该任务为核任务的服务器下标加 1
+        int[] kernels = new int[servers.size()];
+        int[] freeSlots = new int[servers.size()];
+        int[] kernelOwner = new int[relationValue.getTaskCount() + 1];
+        SplittableRandom random = new SplittableRandom(seed ^ REALLOCATE_STREAM);
+        for(int k = 0; k < servers.size(); k++) {
+            Server server = servers.get(k);
+            int kernalTask = context.getKernelTask(registry.getServerId(server.getServerName()));
+            int taskCount = server.getAllocatedTask().size();
+            //由于在加上核任务时，已经将服务器的slot数目减1，因此这里核任务不考虑在所有已分配的任务之内
+            if(kernalTask != 0)
+                taskCount -= 1;
+            else if(taskCount > 0)
+                kernalTask = registry.getTaskId(server.getAllocatedTask().get(random.nextInt(taskCount)));
+            kernels[k] = kernalTask;
+            freeSlots[k] = server.getSlot() - taskCount;
+            if(kernalTask != 0)
+                kernelOwner[kernalTask] = k + 1;
+        }
 
-                        if(kernalTask != null) {
-                            //计算待分配任务放在所有不同服务器上所带来的收益，取最大者。
-                            int i = Integer.parseInt(kernalTask.substring(1, kernalTask.length()));
-                            int j = Integer.parseInt(unAllocatedTask.substring(1, unAllocatedTask.length()));
-                            int tempValue = 0;
-                            if(i > j)
-                                tempValue = relationValue[j][i];
-                            else
-                                tempValue = relationValue[i][j];
-                            if(tempValue > maxValue){
-                                maxValue = tempValue;
-                                selectedServer = server.getServerName();
-                            }
-                        }
-                    }
+        //第一个仍有空闲 slot 并且具有核任务的服务器，空闲 slot 只会减少，因此只需要向后移动
+        int firstFree = 0;
+        KernelSelector selector = new KernelSelector(kernelOwner, freeSlots);
+        for(int unAllocatedTaskId = 1; unAllocatedTaskId <= registry.getTaskCount(); unAllocatedTaskId++){
+            if(!context.isPending(unAllocatedTaskId))
+                continue;
+            selector.reset();
+
+            if(relationValue.getNeighborCount(unAllocatedTaskId) < servers.size()) {
+                relationValue.forEachNeighbor(unAllocatedTaskId, selector);
+                //邻居中没有可用的核任务，此时与所有核任务的紧密度均为 0，取第一个可用的服务器
+                if(selector.selected == -1) {
+                    while(firstFree < servers.size() && (kernels[firstFree] == 0 || freeSlots[firstFree] <= 0))
+                        firstFree++;
+                    if(firstFree < servers.size())
+                        selector.selected = firstFree;
+                }
+            }
+            else {
+                //计算待分配任务放在所有不同服务器上所带来的收益，取最大者。
+                for(int k = 0; k < servers.size(); k++) {
+                    if(kernels[k] != 0 && freeSlots[k] > 0)
+                        selector.accept(kernels[k], relationValue.get(kernels[k], unAllocatedTaskId));
                 }
             }
-            if(selectedServer != null && allocatedTask != null){
-                allocatedTask.add(unAllocatedTask);
-                iterator.remove();
+
+            if(selector.selected != -1){
+                servers.get(selector.selected).addTask(registry.getTaskName(unAllocatedTaskId));
+                freeSlots[selector.selected]--;
+                context.removePending(unAllocatedTaskId);
             }
         }
         //说明服务器集合中存在着若干服务器不具有核任务并且也没有被分配到任务,此时随机选择空闲服务器进行分配
-        if(taskSet.size() > 0) {
-            iterator = taskSet.iterator();
-            while(iterator.hasNext()) {
-                String task = iterator.next();
-                for(Server server : servers) {
-                    if(!kernalTasks.containsKey(server.getServerName()) && server.getAllocatedTask().size() < server.getSlot()) {
-                        server.getAllocatedTask().add(task);
-                        iterator.remove();
-                    }
-                }
+        int k = 0;
+        for(int task = 1; task <= registry.getTaskCount(); task++) {
+            if(!context.isPending(task))
+                continue;
+            while(k < servers.size() && (kernels[k] != 0 || servers.get(k).getAllocatedTask().size() >= servers.get(k).getSlot()))
+                k++;
+            if(k == servers.size())
+                break;
+            servers.get(k).addTask(registry.getTaskName(task));
+            context.removePending(task);
+        }
+        listener.endPhase(ScheduleListener.Phase.REALLOCATE, start);
+    }
+
+    /**
+     * 在核任务中选取与待分配任务紧密度最大并且所在服务器仍有空闲 slot 的一个
+     */
+    private static class KernelSelector implements AffinityMatrix.NeighborConsumer {
+
+        private final int[] kernelOwner;
+
+        private final int[] freeSlots;
+
+        //选中的服务器下标，-1 表示没有可用的服务器
+        private int selected;
+
+        private int maxValue;
+
+        private KernelSelector(int[] kernelOwner, int[] freeSlots){
+            this.kernelOwner = kernelOwner;
+            this.freeSlots = freeSlots;
+        }
+
+        private void reset(){
+            selected = -1;
+            maxValue = -1;
+        }
+
+        @Override
+        public void accept(int task, int value){
+            int k = kernelOwner[task] - 1;
+            if(k >= 0 && freeSlots[k] > 0 && value > maxValue){
+                maxValue = value;
+                selected = k;
             }
         }
     }
 
     /**
-     * 得到CouplingSchedule分配的初始分配情形，并随机选取一个任务作为该服务器的核（Kernal）
+     * 得到CouplingSchedule分配的初始分配情形，并由种子随机选取一个任务作为该服务器的核（Kernal）
      * 固定一个核任务后，需要更新Server的slot数目
-     * @return
+     * @return 本次调度的上下文，其中的服务器集合为选定核任务后的分配情况
      */
-    public List<Server> getInitialAllocation(DataSource dataSource){
+    public ScheduleContext getInitialAllocation(ClusterModel model){
 
         //初始的任务分配结果
-        List<Server> servers = couplingSchedule.getTaskAllocation(dataSource);
-
-        System.out.println("未选定核任务对应初始分配情况：" + servers);
-        System.out.println();
+        long start = listener.startPhase();
+        List<Server> servers = couplingSchedule.getTaskAllocation(model);
+        listener.endPhase(ScheduleListener.Phase.INITIAL_ALLOCATION, start);
 
         //对于每个服务器，若当前服务器分配的任务数大于0时，从中随机选取一个任务作为其核任务
+        start = listener.startPhase();
+        SplittableRandom random = new SplittableRandom(seed);
         for(Server server : servers){
             if(server.getAllocatedTask().size() >= 1){
-                int index = new Random().nextInt(server.getAllocatedTask().size());
+                int index = random.nextInt(server.getAllocatedTask().size());
                 String kernalTask = server.getAllocatedTask().get(index);
                 server.getAllocatedTask().clear();
                 server.getAllocatedTask().add(kernalTask);
@@ -309,71 +482,59 @@ public class ScheduleWithWeight {
                 server.setSlot(server.getSlot() - 1);
             }
         }
-        updateGraph(dataSource, servers);
-        System.out.println("选定核任务对应的分配情况: " + servers);
-        System.out.println();
-        System.out.println();
-        return servers;
+        ScheduleContext context = new ScheduleContext(model, servers, listener);
+        updateGraph(context);
+        listener.endPhase(ScheduleListener.Phase.KERNEL_SELECTION, start);
+        return context;
     }
 
     /**
      * 由于为每个任务随机分配一个核任务，并且核任务固定在该服务器上，此时需要从图中移除有关核任务
      * 的边信息，并且更新每个服务器的本地任务集合以及该服务器对应的Slot数目。
-     * @param dataSource
-     * @param servers
+     * @param context
      * @return
      */
-    public void updateGraph(DataSource dataSource, List<Server> servers){
-
-        edges = dataSource.getEdges();
-        preferedTasks = dataSource.getPreferedTasks();
+    public void updateGraph(ScheduleContext context){
 
-        System.out.println("未分配核任务对应的服务器本地任务集合：" + preferedTasks);
-        System.out.println();
+        ResidualGraph graph = context.getGraph();
 
         //从图中移除所有有关kernalTask的边
         //从服务器的本地任务列表中移除kernalTask
-        for(Server server : servers){
+        for(Server server : context.getServers()){
             if(server.getAllocatedTask().size() > 0){
-                String kernalTask = server.getAllocatedTask().get(0);
-                Iterator<String> keyIterator = edges.keySet().iterator();
-                while(keyIterator.hasNext()){
-                    String path = keyIterator.next();
-                    if(path.contains(kernalTask))
-                        keyIterator.remove();
-                }
-                for(String s : preferedTasks.keySet()){
-                    if(preferedTasks.get(s).contains(kernalTask))
-                        preferedTasks.get(s).remove(kernalTask);
-                }
+                int kernalNode = graph.getNode(server.getAllocatedTask().get(0));
+                int kernalTask = graph.getTaskId(kernalNode);
+                graph.removeNode(kernalNode);
+                for(int s : context.getReplicaServers(kernalTask))
+                    context.removeLocalTask(kernalTask, s);
             }
         }
-        System.out.println("分配核任务后对应的服务器本地任务集合：" + preferedTasks);
-        System.out.println();
     }
 
     /**
      * 当前任务分配后，需要更新服务器的最大执行任务量
-     * @param task ： 当前待处理的任务
-     * @param server ：当前预分配给当前task的服务器
-     * @param serverAbilityMap ：key:服务器  value:服务器对应的最大执行能力
-     * @param serverSlotMap ：key:服务器  value:服务器对应的slot数目
-     * @param preferedTaskMap ：key:服务器  value:服务器引用的本地任务列表
+     * @param task ： 当前待处理的任务编号
+     * @param server ：当前预分配给当前task的服务器编号
+     * @param context ：本次调度的上下文，其中记录了服务器的最大执行能力、slot数目和本地任务列表
      */
-    private void updateGraph(String task,  String server, Map<String, Integer> serverAbilityMap,
-                             Map<String,Integer> serverSlotMap, Map<String, Set<String>> preferedTaskMap){
-        for(String s : preferedTaskMap.keySet()){
-            if(s.equals(server))
+    private void updateGraph(int task, int server, ScheduleContext context){
+
+        AbilityBucketQueue serverAbility = context.getServerAbility();
+
+        //只有存放该任务数据的服务器的本地任务列表中可能包含该任务
+        for(int serverId : context.getReplicaServers(task)){
+            if(serverId == server)
                 continue;
+
             //如果当前服务器的本地任务列表包含需要处理的任务，则从服务器的本地任务列表中移除该任务
-            if(preferedTaskMap.get(s).contains(task)){
-                preferedTaskMap.get(s).remove(task);
+            if(context.removeLocalTask(task, serverId)){
+
                 //将任务从服务器的本地任务列表删除后，可能会导致当前服务器的最大执行能力发生变化，因此需要进行判断并更新
-                int slot = serverSlotMap.get(s);
-                int preferedTaskCount = preferedTaskMap.get(s).size();
+                int slot = context.getServerSlot(serverId);
+                int preferedTaskCount = context.getLocalTaskCount(serverId);
                 int minNum = slot > preferedTaskCount ? preferedTaskCount : slot;
-                int ability = serverAbilityMap.get(s) > minNum ? minNum : serverAbilityMap.get(s);
-                serverAbilityMap.put(s, ability);
+                if(serverAbility.get(serverId) > minNum)
+                    serverAbility.set(serverId, minNum);
             }
         }
     }
@@ -381,92 +542,125 @@ public class ScheduleWithWeight {
     /**
      * 更新服务器中的信息
      * @param servers
-     * @param allocatedTask
+     * @param allocated ：key:服务器  value:分配给该服务器的任务集合
      */
-    public void updateServers(List<Server> servers, Map<String, String> allocatedTask) {
-        for(String task : allocatedTask.keySet()) {
-            String server = allocatedTask.get(task);
-            for(Server server1 : servers){
-                if(server1.getServerName().equals(server)) {
-                    server1.addTask(task);
-                    break;
-                }
+    public void updateServers(List<Server> servers, Map<String, Set<String>> allocated) {
+        for(Server server : servers) {
+            if(allocated.containsKey(server.getServerName())) {
+                for(String task : allocated.get(server.getServerName()))
+                    server.addTask(task);
             }
         }
     }
 
     /**
-     * 用于获取最大执行能力的服务器
-     * @param abilityMap：key->服务器名   value->服务器最多可以执行的任务数
-     * @return
+     * 获取从 server 出发到终点的候选流，只保留净节省费用最大的 MAX_CANDIDATE_FLOWS 条，并且限制搜索的步数与时间，
+     * 因此即使副本分布很稠密，枚举所占用的时间和内存也是有界的
+     * @param context
+     * @param server
+     * @param relationValue
+     * @return 按照净节省费用（节省的费用减去已分配任务回撤时损失的费用）从大到小给出的候选流
      */
-    public String getMaxAbilityServer(Map<String,Integer> abilityMap)
-    {
-        int maxNum = Integer.MIN_VALUE;
-        String maxServer = null;
-        for(String server : abilityMap.keySet()){
-            if(abilityMap.get(server) > maxNum){
-                maxNum = abilityMap.get(server);
-                maxServer = server;
-            }
-        }
-        return maxServer;
+    public FlowCandidates getCandidateFlows(ScheduleContext context, String server, AffinityMatrix relationValue){
+
+        ResidualGraph graph = context.getGraph();
+        return new FlowCandidates(graph, graph.getNode(server), graph.getSink(), MAX_CANDIDATE_FLOWS,
+                MAX_SEARCH_STEPS, searchBudgetNanos, new FlowScorer(context, server, relationValue), context.getListener());
     }
 
     /**
-     * 对当前server经过的所有流按照费用进行一个排序
-     * @param server
+     * 获取一条流中已被分配的任务从原服务器回撤时损失的费用：
+     * 1、该任务分配给的服务器具有核任务时，节省的开销为核任务与该任务之间的通信开销。
+     * 2、该任务分配给的服务器不具有核任务时，节省的通信开销记为 0
+     * @param context
      * @param relationValue
-     * @param flows
+     * @param flow
+     * @return
      */
-    public void sortFlowByFee(String server, int[][] relationValue, List<List<Edge>> flows){
-
-        Collections.sort(flows, new Comparator<List<Edge>>() {
-            @Override
-            public int compare(List<Edge> flow1, List<Edge> flow2) {
-                int flow1_Value = getSingleFlowFValue(server, relationValue, flow1);
-                int flow2_value = getSingleFlowFValue(server, relationValue, flow2);
-                return flow1_Value - flow2_value;
+    public int getWithdrawnValue(ScheduleContext context, AffinityMatrix relationValue, int[] flow){
+
+        ResidualGraph graph = context.getGraph();
+        int totalValue = 0;
+        for(int arc : flow){
+            if(graph.isServer(graph.getTail(arc))){
+                int task = graph.getTaskId(graph.getHead(arc));
+                int server = context.getAssignedServer(task);
+                if(server != 0 && context.getKernelTask(server) != 0)
+                    totalValue += relationValue.get(context.getKernelTask(server), task);
             }
-        });
+        }
+        return totalValue;
     }
 
     /**
      * 获取server到终点的一条流所对应的费用
+     * @param context
      * @param server
      * @param relationValue
      * @param flow
      * @return
      */
-    public int getSingleFlowFValue(String server, int[][] relationValue, List<Edge> flow){
+    public int getSingleFlowFValue(ScheduleContext context, String server, AffinityMatrix relationValue, int[] flow){
 
+        ResidualGraph graph = context.getGraph();
         int totalValue = 0;
-        String kernalTask = null;
-        for(Edge edge : flow){
-            if(edge.getStart().startsWith("s")){
-                String s = edge.getStart();
-                String t = edge.getEnd();
+        int kernalTask = 0;
+        for(int arc : flow){
+            if(graph.isServer(graph.getTail(arc))){
+                int s = graph.getTail(arc);
+                int t = graph.getTaskId(graph.getHead(arc));
 
                 //当前流只包含两条边，并且当前流中的服务器没有核任务，直接返回本地任务的代价====1
-                if(flow.size() == 2){
-                    if(!kernelTasks.containsKey(s))
+                if(flow.length == 2){
+                    if(context.getKernelTask(s) == 0)
                         return 1;
                 }
 
                 //如果当前服务器没有核任务，将第一个分配给该服务器的任务当做核任务来处理
-                if(!kernelTasks.containsKey(s)){
+                if(context.getKernelTask(s) == 0){
                     kernalTask = t;
                 }
                 else
-                    kernalTask = kernelTasks.get(s);
-                int i = Integer.parseInt(kernalTask.substring(1,kernalTask.length()));
-                int j = Integer.parseInt(t.substring(1,t.length()));
-                if(i > j)
-                    totalValue += relationValue[j][i];
-                else
-                    totalValue += relationValue[i][j];
+                    kernalTask = context.getKernelTask(s);
+                totalValue += relationValue.get(kernalTask, t);
             }
         }
         return totalValue;
     }
+
+    /**
+     * 候选流的得分为按照该流分配所节省的费用减去已分配任务回撤时损失的费用。核任务在枚举候选流之前已经固定，
+     * 因此得分只会随流中任务的分配而变化，流的版本取流中任务版本号的最大值
+     */
+    private class FlowScorer implements FlowCandidates.Scorer {
+
+        private final ScheduleContext context;
+
+        private final String server;
+
+        private final AffinityMatrix relationValue;
+
+        private FlowScorer(ScheduleContext context, String server, AffinityMatrix relationValue){
+            this.context = context;
+            this.server = server;
+            this.relationValue = relationValue;
+        }
+
+        @Override
+        public void score(Flow flow){
+            flow.setScore(getSingleFlowFValue(context, server, relationValue, flow.getArcs()),
+                    getWithdrawnValue(context, relationValue, flow.getArcs()), getVersion(flow.getArcs()));
+        }
+
+        @Override
+        public int getVersion(int[] arcs){
+            ResidualGraph graph = context.getGraph();
+            int version = 0;
+            for(int arc : arcs){
+                if(graph.isServer(graph.getTail(arc)))
+                    version = Math.max(version, context.getTaskVersion(graph.getTaskId(graph.getHead(arc))));
+            }
+            return version;
+        }
+    }
 }
@@ -0,0 +1,11 @@
+/**
+ * 调度策略的统一入口：输入预先构建好的集群模型，输出任务的分配结果。
+ * 实现不能修改模型，并且不保存调度过程中的状态，因此同一个实现可以在多个模型上、多个线程中反复调用
+ */
+public interface Scheduler
+{
+    //使用随机数的调度策略没有指定种子时所用的种子，相同的种子和模型总是得到相同的分配
+    long DEFAULT_SEED = 1L;
+
+    Assignment schedule(ClusterModel model);
+}
@@ -0,0 +1,94 @@
+import java.util.*;
+
+/**
+ * 按名称注册的调度策略，新建时注册了现有的全部调度策略，便于在同一个集群模型上依次运行并比较。
+ * 每个注册表各自持有策略对象与监听器，不同的注册表之间互不影响
+ */
+public class SchedulerRegistry
+{
+    private final Map<String, Scheduler> schedulers = new LinkedHashMap<>();
+
+    public SchedulerRegistry()
+    {
+        this(ScheduleListener.NONE);
+    }
+
+    /**
+     * 注册现有的全部调度策略
+     * @param listener : 这些调度策略所使用的监听器
+     */
+    public SchedulerRegistry(ScheduleListener listener)
+    {
+        this(listener, ScheduleWithWeight.SEARCH_BUDGET_NANOS);
+    }
+
+    /**
+     * 注册现有的全部调度策略
+     * @param listener : 这些调度策略所使用的监听器
+     * @param searchBudgetNanos : weighted 策略每次枚举候选流的时间预算（纳秒），Long.MAX_VALUE 为只限制搜索步数
+     */
+    public SchedulerRegistry(ScheduleListener listener, long searchBudgetNanos)
+    {
+        register("random", new RandomAllocation(Scheduler.DEFAULT_SEED));
+        for(LocalityEngine engine : LocalityEngine.values()) {
+            register("load-balancing-" + getEngineName(engine), new LoadBalancingSchedule(engine, listener));
+            register("coupling-" + getEngineName(engine), new CouplingSchedule(engine, listener));
+        }
+        //两种 weighted 策略的初始分配使用相同的求解方式，比较时只有后续的分配方式不同
+        register("weighted", new ScheduleWithWeight(LocalityEngine.AUGMENT_PATH, AffinityEngine.CANDIDATE_FLOWS,
+                listener, searchBudgetNanos, Scheduler.DEFAULT_SEED));
+        register("weighted-min-cost", new ScheduleWithWeight(LocalityEngine.AUGMENT_PATH, AffinityEngine.MIN_COST_FLOW,
+                listener, searchBudgetNanos, Scheduler.DEFAULT_SEED));
+    }
+
+    private static String getEngineName(LocalityEngine engine)
+    {
+        return engine.name().toLowerCase().replace('_', '-');
+    }
+
+    /**
+     * 注册调度策略，名称相同时替换原有的策略
+     * @param name : 策略名称
+     * @param scheduler : 调度策略
+     */
+    public synchronized void register(String name, Scheduler scheduler)
+    {
+        schedulers.put(name, scheduler);
+    }
+
+    /**
+     * @param name : 策略名称
+     * @return 未注册时返回 null
+     */
+    public synchronized Scheduler get(String name)
+    {
+        return schedulers.get(name);
+    }
+
+    //按注册顺序给出所有策略名称
+    public synchronized List<String> getNames()
+    {
+        return new ArrayList<>(schedulers.keySet());
+    }
+
+    /**
+     * 在同一个集群模型上依次运行所有调度策略，并给出每个策略的分配质量、各阶段的用时和搜索的统计：java SchedulerRegistry [服务器数] [任务数] [种子]
+     */
+    public static void main(String[] args)
+    {
+        int serverCount = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int taskCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 1;
+        ClusterModel model = new ClusterModel(new WorkloadGenerator(serverCount, taskCount).setSeed(seed).generate());
+        ScheduleMetrics metrics = new ScheduleMetrics();
+        SchedulerRegistry registry = new SchedulerRegistry(metrics);
+        for(String name : registry.getNames()) {
+            metrics.reset();
+            long start = System.currentTimeMillis();
+            Assignment assignment = registry.get(name).schedule(model);
+            System.out.println(name + " : " + assignment + "，用时 " + (System.currentTimeMillis() - start) + " ms");
+            System.out.println(assignment.evaluate());
+            System.out.println(metrics);
+        }
+    }
+}
@@ -11,10 +11,18 @@ public class Server {
     //每个server最多可以同时运行的任务数
     private int slot = 0;
 
-    public Server(String serverName, int load) {
+    public Server(String serverName, int load, int slot) {
         this.serverName = serverName;
         this.load = load;
-        this.slot = new Random().nextInt(8) + 1;//假设最多运行 6 个任务
+        this.slot = slot;
+    }
+
+    //复制一个服务器，分配给该服务器的任务列表也会被复制
+    public Server(Server server) {
+        this.serverName = server.serverName;
+        this.load = server.load;
+        this.slot = server.slot;
+        this.allocatedTask = new ArrayList<>(server.allocatedTask);
     }
 
     public String getServerName() {
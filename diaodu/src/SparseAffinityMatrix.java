@@ -0,0 +1,223 @@
+import java.util.Arrays;
+
+/**
+ * 稀疏存储的紧密度矩阵：实际任务之间的紧密度大多接近 0，因此只保存紧密度不低于阈值的任务对，
+ * 或者每个任务紧密度最大的 K 个任务。每个任务的邻居按任务编号排好序并按行压缩存储（CSR），
+ * 任务对在两端的行中各存放一次，内存占用与保留下来的任务对数目成正比。未保存的任务对紧密度视为 0
+ */
+public class SparseAffinityMatrix implements AffinityMatrix
+{
+    private final int taskCount;
+
+    //rowBegin[i] 到 rowBegin[i+1] 之间为任务 i 的邻居
+    private final int[] rowBegin;
+
+    //邻居的任务编号
+    private final int[] neighbor;
+
+    //与邻居之间的紧密度
+    private final byte[] value;
+
+    SparseAffinityMatrix(int taskCount, int[] rowBegin, int[] neighbor, byte[] value)
+    {
+        this.taskCount = taskCount;
+        this.rowBegin = rowBegin;
+        this.neighbor = neighbor;
+        this.value = value;
+    }
+
+    @Override
+    public int getTaskCount()
+    {
+        return taskCount;
+    }
+
+    //保存的任务对数目
+    public int getPairCount()
+    {
+        return neighbor.length / 2;
+    }
+
+    //以下三个数组直接用于保存快照，调用者不能修改
+    int[] getRowBegin()
+    {
+        return rowBegin;
+    }
+
+    int[] getNeighbors()
+    {
+        return neighbor;
+    }
+
+    byte[] getValues()
+    {
+        return value;
+    }
+
+    /**
+     * 在任务 i 的邻居中二分查找任务 j
+     */
+    @Override
+    public int get(int i, int j)
+    {
+        int low = rowBegin[i], high = rowBegin[i + 1] - 1;
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            if(neighbor[mid] < j)
+                low = mid + 1;
+            else if(neighbor[mid] > j)
+                high = mid - 1;
+            else
+                return value[mid];
+        }
+        return 0;
+    }
+
+    @Override
+    public int getNeighborCount(int i)
+    {
+        return rowBegin[i + 1] - rowBegin[i];
+    }
+
+    @Override
+    public void forEachNeighbor(int i, NeighborConsumer consumer)
+    {
+        for(int k = rowBegin[i]; k < rowBegin[i + 1]; k++)
+            consumer.accept(neighbor[k], value[k]);
+    }
+
+    /**
+     * 先收集所有的任务对，最后按阈值和 K 进行筛选并生成压缩邻接数组
+     */
+    public static class Builder
+    {
+        private final int taskCount;
+
+        //低于该值的任务对不保存
+        private final int threshold;
+
+        //每个任务最多保留的紧密度最大的任务数目，0 表示不限制。任务对只要在任一端的前 K 个中就会被保留，以保证对称
+        private int topK = 0;
+
+        private int[] first = new int[16];
+
+        private int[] second = new int[16];
+
+        private byte[] pairValue = new byte[16];
+
+        private int size = 0;
+
+        public Builder(int taskCount, int threshold)
+        {
+            this.taskCount = taskCount;
+            this.threshold = Math.max(1, threshold);
+        }
+
+        public Builder setTopK(int topK)
+        {
+            this.topK = topK;
+            return this;
+        }
+
+        /**
+         * 加入一对任务之间的紧密度，同一对任务加入多次时保留最大值
+         * @param i : 任务编号
+         * @param j : 任务编号
+         * @param value : 紧密度，取值 0..127
+         * @throws IllegalArgumentException 紧密度超过 127
+         */
+        public void add(int i, int j, int value)
+        {
+            if(value > Byte.MAX_VALUE)
+                throw new IllegalArgumentException("任务 " + i + " 与 " + j + " 的紧密度 " + value + " 超过 " + Byte.MAX_VALUE);
+            if(i == j || value < threshold)
+                return;
+            if(size == first.length) {
+                first = Arrays.copyOf(first, size * 2);
+                second = Arrays.copyOf(second, size * 2);
+                pairValue = Arrays.copyOf(pairValue, size * 2);
+            }
+            first[size] = i;
+            second[size] = j;
+            pairValue[size] = (byte) value;
+            size++;
+        }
+
+        public SparseAffinityMatrix build()
+        {
+            boolean[] kept = new boolean[size];
+            if(topK > 0)
+                markTopK(kept);
+            else
+                Arrays.fill(kept, true);
+
+            //每行的元素编码为 (邻居编号 << 8 | 紧密度)，排序后同一邻居的重复元素相邻并且紧密度最大的排在最后
+            int[] begin = new int[taskCount + 2];
+            for(int p = 0; p < size; p++) {
+                if(kept[p]) {
+                    begin[first[p] + 1]++;
+                    begin[second[p] + 1]++;
+                }
+            }
+            for(int i = 0; i <= taskCount; i++)
+                begin[i + 1] += begin[i];
+            long[] entries = new long[begin[taskCount + 1]];
+            int[] next = Arrays.copyOf(begin, taskCount + 1);
+            for(int p = 0; p < size; p++) {
+                if(kept[p]) {
+                    entries[next[first[p]]++] = (long) second[p] << 8 | (pairValue[p] & 0xff);
+                    entries[next[second[p]]++] = (long) first[p] << 8 | (pairValue[p] & 0xff);
+                }
+            }
+
+            int[] rowBegin = new int[taskCount + 2];
+            int count = 0;
+            for(int i = 0; i <= taskCount; i++) {
+                rowBegin[i] = count;
+                Arrays.sort(entries, begin[i], begin[i + 1]);
+                for(int k = begin[i]; k < begin[i + 1]; k++) {
+                    if(k + 1 < begin[i + 1] && entries[k + 1] >>> 8 == entries[k] >>> 8)
+                        continue;
+                    entries[count++] = entries[k];
+                }
+            }
+            rowBegin[taskCount + 1] = count;
+
+            int[] neighbor = new int[count];
+            byte[] value = new byte[count];
+            for(int k = 0; k < count; k++) {
+                neighbor[k] = (int) (entries[k] >>> 8);
+                value[k] = (byte) (entries[k] & 0xff);
+            }
+            return new SparseAffinityMatrix(taskCount, rowBegin, neighbor, value);
+        }
+
+        /**
+         * 对每个任务，将与其相关的任务对按紧密度从大到小排序，标记前 topK 个
+         */
+        private void markTopK(boolean[] kept)
+        {
+            int[] begin = new int[taskCount + 2];
+            for(int p = 0; p < size; p++) {
+                begin[first[p] + 1]++;
+                begin[second[p] + 1]++;
+            }
+            for(int i = 0; i <= taskCount; i++)
+                begin[i + 1] += begin[i];
+
+            //元素编码为 ((127 - 紧密度) << 32 | 任务对下标)，升序即紧密度从大到小
+            long[] entries = new long[begin[taskCount + 1]];
+            int[] next = Arrays.copyOf(begin, taskCount + 1);
+            for(int p = 0; p < size; p++) {
+                long key = (long) (127 - pairValue[p]) << 32 | p;
+                entries[next[first[p]]++] = key;
+                entries[next[second[p]]++] = key;
+            }
+            for(int i = 0; i <= taskCount; i++) {
+                Arrays.sort(entries, begin[i], begin[i + 1]);
+                for(int k = begin[i]; k < Math.min(begin[i + 1], begin[i] + topK); k++)
+                    kept[(int) entries[k]] = true;
+            }
+        }
+    }
+}
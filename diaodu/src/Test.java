@@ -1,30 +1,34 @@
 import java.io.*;
+import java.nio.file.*;
 
 /**
+ * 读取紧密度矩阵文件：java Test <矩阵文件> [二进制输出文件]
+ * 只给出矩阵文件时载入并输出矩阵（任务数目较多时只输出任务数目），给出输出文件时把文本格式转换为二进制格式
  */
 public class Test {
 
     public static void main(String[] args){
 
-        int[][] relation = new int[20][21];
+        if(args.length == 0){
+            System.out.println("用法: java Test <relation_matrix.txt> [relation_matrix.bin]");
+            return;
+        }
         try{
-            BufferedReader br = new BufferedReader(
-                    new FileReader("G:\\Intellij\\MyJavaProgram\\PaperProject_1\\src\\relation_matrix.txt"));
-            String str = null;
-            int taskNum = 1;
-            int otherTaskNum = taskNum + 1;
-            while((str = br.readLine()) != null){
-                String[] values = str.split("\t");
-                for(String s : values){
-                    relation[taskNum][otherTaskNum] = Integer.parseInt(s);
-                    System.out.print(relation[taskNum][otherTaskNum] + "(" + taskNum + "," + otherTaskNum + ")" + "\t\t");
-                    otherTaskNum++;
-                }
+            long start = System.currentTimeMillis();
+            if(args.length > 1){
+                int taskCount = AffinityMatrixLoader.convert(Paths.get(args[0]), Paths.get(args[1]));
+                System.out.println("转换完成，任务数: " + taskCount + "，用时 " + (System.currentTimeMillis() - start) + " ms");
+                return;
+            }
+            AffinityMatrix relation = AffinityMatrixLoader.load(Paths.get(args[0]));
+            System.out.println("任务数: " + relation.getTaskCount() + "，用时 " + (System.currentTimeMillis() - start) + " ms");
+            if(relation.getTaskCount() > 20)
+                return;
+            for(int taskNum = 1; taskNum < relation.getTaskCount(); taskNum++){
+                for(int otherTaskNum = taskNum + 1; otherTaskNum <= relation.getTaskCount(); otherTaskNum++)
+                    System.out.print(relation.get(taskNum, otherTaskNum) + "(" + taskNum + "," + otherTaskNum + ")" + "\t\t");
                 System.out.println();
-                taskNum++;
-                otherTaskNum = taskNum + 1;
             }
-            br.close();
         }
         catch(IOException e){
             e.printStackTrace();
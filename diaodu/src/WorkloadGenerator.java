@@ -0,0 +1,384 @@
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * 可配置的测试数据生成器：服务器的 slot、任务的副本放置以及任务之间的紧密度均由种子决定，
+ * 相同的种子和参数总是生成相同的数据源，与并行时的线程数和执行顺序无关，生成过程不输出任何内容。
+ * 没有指定种子时使用固定的默认种子，因此默认参数下每次生成的数据也相同。
+ * 每个服务器、每个任务、紧密度矩阵的每一行各自使用由种子和编号得到的 SplittableRandom，因此可以按行并行生成
+ */
+public class WorkloadGenerator
+{
+    //不同用途的随机数流，保证 slot、副本放置和紧密度互不相关
+    private static final long SLOT_STREAM = 0x5D588B656C078965L;
+    private static final long REPLICA_STREAM = 0x9E3779B97F4A7C15L;
+    private static final long AFFINITY_STREAM = 0xC2B2AE3D27D4EB4FL;
+
+    //没有指定种子时使用的种子
+    public static final long DEFAULT_SEED = 1L;
+
+    private final int serverCount;
+
+    private final int taskCount;
+
+    private long seed = DEFAULT_SEED;
+
+    //每个任务的数据副本数目
+    private int replicationFactor = 2;
+
+    //服务器的 slot 数目在 [minSlot, maxSlot] 之间均匀分布
+    private int minSlot = 1;
+
+    private int maxSlot = 8;
+
+    //紧密度取值为 0..maxRelationValue
+    private int maxRelationValue = DataSource.MAX_RELATION_VALUE;
+
+    //紧密度的偏斜程度，紧密度为 (maxRelationValue+1) * u^affinitySkew 取整，u 为 [0,1) 的均匀分布。1 为均匀分布，越大则紧密度越集中于较小的值
+    private double affinitySkew = 1.0;
+
+    //大于 0 时每个任务随机选取 affinityDegree 个不同的其他任务（任务数目不足时取全部其他任务）产生大于 0 的紧密度，紧密度采用稀疏存储。
+    //紧密度是对称的，因此每个任务至少与 affinityDegree 个任务之间具有大于 0 的紧密度，被其他任务选中时还会更多
+    private int affinityDegree = 0;
+
+    //副本所在服务器的 Zipf 分布指数，编号为 k 的服务器被选中的概率正比于 1/k^serverSkew，0 为均匀分布
+    private double serverSkew = 0;
+
+    //给定的紧密度矩阵，不为 null 时不再生成紧密度
+    private AffinityMatrix relationValue = null;
+
+    public WorkloadGenerator(int serverCount, int taskCount)
+    {
+        if(serverCount < 0 || taskCount < 0)
+            throw new IllegalArgumentException("服务器数目 " + serverCount + " 和任务数目 " + taskCount + " 不能为负数");
+        this.serverCount = serverCount;
+        this.taskCount = taskCount;
+    }
+
+    public WorkloadGenerator setSeed(long seed)
+    {
+        this.seed = seed;
+        return this;
+    }
+
+    public WorkloadGenerator setReplicationFactor(int replicationFactor)
+    {
+        if(replicationFactor < 1)
+            throw new IllegalArgumentException("副本数目 " + replicationFactor + " 应至少为 1");
+        this.replicationFactor = replicationFactor;
+        return this;
+    }
+
+    /**
+     * @param minSlot : slot 数目的最小值，不能为负数
+     * @param maxSlot : slot 数目的最大值，不能小于 minSlot
+     * @return
+     */
+    public WorkloadGenerator setSlotRange(int minSlot, int maxSlot)
+    {
+        if(minSlot < 0 || minSlot > maxSlot)
+            throw new IllegalArgumentException("slot 范围 [" + minSlot + ", " + maxSlot + "] 无效");
+        this.minSlot = minSlot;
+        this.maxSlot = maxSlot;
+        return this;
+    }
+
+    public WorkloadGenerator setMaxRelationValue(int maxRelationValue)
+    {
+        if(maxRelationValue < 1 || maxRelationValue > Byte.MAX_VALUE)
+            throw new IllegalArgumentException("紧密度的最大值 " + maxRelationValue + " 应在 1.." + Byte.MAX_VALUE + " 之间");
+        this.maxRelationValue = maxRelationValue;
+        return this;
+    }
+
+    public WorkloadGenerator setAffinitySkew(double affinitySkew)
+    {
+        if(!(affinitySkew > 0))
+            throw new IllegalArgumentException("紧密度的偏斜程度 " + affinitySkew + " 应大于 0");
+        this.affinitySkew = affinitySkew;
+        return this;
+    }
+
+    public WorkloadGenerator setAffinityDegree(int affinityDegree)
+    {
+        if(affinityDegree < 0)
+            throw new IllegalArgumentException("紧密度的度数 " + affinityDegree + " 不能为负数");
+        this.affinityDegree = affinityDegree;
+        return this;
+    }
+
+    public WorkloadGenerator setServerSkew(double serverSkew)
+    {
+        if(!(serverSkew >= 0))
+            throw new IllegalArgumentException("服务器的偏斜程度 " + serverSkew + " 不能为负数");
+        this.serverSkew = serverSkew;
+        return this;
+    }
+
+    public WorkloadGenerator setRelationValue(AffinityMatrix relationValue)
+    {
+        this.relationValue = relationValue;
+        return this;
+    }
+
+    public DataSource generate()
+    {
+        DataSource ds = new DataSource();
+        generate(ds);
+        return ds;
+    }
+
+    //生成数据并填充到数据源中
+    void generate(DataSource ds)
+    {
+        IdRegistry registry = new IdRegistry();
+
+        //初始化服务器集合，任务数目最多为服务器集合的 slot 总数
+        int[] slots = generateSlots();
+        List<Server> serverList = new ArrayList<>(serverCount);
+        Map<String, Set<String>> preferedTasks = new HashMap<>(serverCount * 2);
+        long maxTaskCount = 0;
+        for(int i = 1; i <= serverCount; i++) {
+            Server server = new Server("s" + i, 0, slots[i]);
+            maxTaskCount += slots[i];
+            serverList.add(server);
+            registry.registerServer(server.getServerName());
+            //没有存放任何任务数据的服务器对应空的本地任务集合
+            preferedTasks.put(server.getServerName(), new HashSet<>());
+        }
+        int taskCount = (int) Math.min(this.taskCount, maxTaskCount);
+        //稀疏紧密度的数组大小在生成副本之前检查，避免参数无效时先生成大量数据
+        if(relationValue == null && affinityDegree > 0)
+            getSparseDegree(taskCount);
+
+        //每个任务的副本所在服务器，replicas[(i-1)*factor + r]
+        int factor = Math.min(replicationFactor, serverCount);
+        int[] replicas = new int[taskCount * factor];
+        double[] cdf = serverSkew > 0 ? getZipfCdf() : null;
+        IntStream.rangeClosed(1, taskCount).parallel().forEach(i -> {
+            SplittableRandom random = random(REPLICA_STREAM, i);
+            int base = (i - 1) * factor;
+            if(cdf == null)
+                sampleUniform(random, replicas, base, factor, serverCount);
+            else {
+                for(int r = 0; r < factor; r++)
+                    replicas[base + r] = sampleZipf(cdf, random, Arrays.copyOfRange(replicas, base, base + r));
+            }
+        });
+
+        Set<String> taskSet = new HashSet<>(taskCount * 2);
+        Map<String, Edge> edges = new HashMap<>(taskCount * (factor + 1) * 2);
+        for(int i = 1; i <= taskCount; i++) {
+            String task = "t" + i;
+            taskSet.add(task);
+            registry.registerTask(task);
+            for(int r = 0; r < factor; r++) {
+                String server = "s" + replicas[(i - 1) * factor + r];
+                Edge edge = new Edge(server, task);
+                edges.put(edge.getPath(), edge);
+                preferedTasks.get(server).add(task);
+            }
+            //增加一个终点T，即每个 task 与 T 都有一条边
+            Edge edge = new Edge(task, "T");
+            edges.put(edge.getPath(), edge);
+        }
+
+        AffinityMatrix matrix = relationValue;
+        if(matrix == null)
+            matrix = affinityDegree > 0 ? generateSparseAffinity(taskCount) : generateAffinity(taskCount);
+        ds.init(registry, serverList, taskSet, preferedTasks, edges, taskCount, matrix);
+    }
+
+    //slots[i] 为服务器 i 的 slot 数目，只由种子和 slot 范围决定
+    private int[] generateSlots()
+    {
+        int[] slots = new int[serverCount + 1];
+        IntStream.rangeClosed(1, serverCount).parallel().forEach(
+                i -> slots[i] = minSlot + random(SLOT_STREAM, i).nextInt(maxSlot - minSlot + 1));
+        return slots;
+    }
+
+    /**
+     * 当前种子和 slot 范围下所有服务器的 slot 总数，即生成的任务数目的上限。只生成 slot，可以在 generate 之前按负载比例确定任务数目
+     * @return slot 总数
+     */
+    public long getTotalSlots()
+    {
+        long total = 0;
+        for(int slot : generateSlots())
+            total += slot;
+        return total;
+    }
+
+    //所有任务对之间的紧密度，按行并行生成
+    private AffinityMatrix generateAffinity(int taskCount)
+    {
+        PackedAffinityMatrix matrix = new PackedAffinityMatrix(taskCount);
+        IntStream.range(1, taskCount).parallel().forEach(i -> {
+            SplittableRandom random = random(AFFINITY_STREAM, i);
+            for(int j = i + 1; j <= taskCount; j++)
+                matrix.set(i, j, nextRelationValue(random, 0));
+        });
+        return matrix;
+    }
+
+    /**
+     * 每个任务不放回地选取 affinityDegree 个不同的其他任务，与它们之间产生 1..maxRelationValue 的紧密度
+     * @param taskCount : 任务数目
+     * @return 稀疏存储的紧密度矩阵
+     */
+    private AffinityMatrix generateSparseAffinity(int taskCount)
+    {
+        SparseAffinityMatrix.Builder builder = new SparseAffinityMatrix.Builder(taskCount, 1);
+        if(taskCount < 2)
+            return builder.build();
+        int degree = getSparseDegree(taskCount);
+        int[] partner = new int[taskCount * degree];
+        byte[] value = new byte[taskCount * degree];
+        IntStream.rangeClosed(1, taskCount).parallel().forEach(i -> {
+            SplittableRandom random = random(AFFINITY_STREAM, i);
+            int base = (i - 1) * degree;
+            //在除 i 以外的 taskCount-1 个任务中抽取，编号不小于 i 的顺延一位
+            sampleUniform(random, partner, base, degree, taskCount - 1);
+            for(int k = base; k < base + degree; k++) {
+                if(partner[k] >= i)
+                    partner[k]++;
+                value[k] = (byte) nextRelationValue(random, 1);
+            }
+        });
+        for(int i = 1; i <= taskCount; i++)
+            for(int k = (i - 1) * degree; k < i * degree; k++)
+                builder.add(i, partner[k], value[k]);
+        return builder.build();
+    }
+
+    /**
+     * @param taskCount : 任务数目
+     * @return 每个任务实际选取的其他任务数目，不超过 taskCount-1
+     * @throws IllegalArgumentException 任务数目与该数目之积超过数组的长度上限
+     */
+    private int getSparseDegree(int taskCount)
+    {
+        int degree = Math.max(0, Math.min(affinityDegree, taskCount - 1));
+        long size = (long) taskCount * degree;
+        if(size > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("任务数目 " + taskCount + " 与紧密度的度数 " + degree + " 之积 " + size + " 过大");
+        return degree;
+    }
+
+    //按照偏斜程度产生 min..maxRelationValue 的紧密度
+    private int nextRelationValue(SplittableRandom random, int min)
+    {
+        if(affinitySkew == 1.0)
+            return min + random.nextInt(maxRelationValue - min + 1);
+        int value = min + (int) ((maxRelationValue - min + 1) * Math.pow(random.nextDouble(), affinitySkew));
+        return Math.min(value, maxRelationValue);
+    }
+
+    //Zipf 分布的累积概率，cdf[k-1] 为选中编号不超过 k 的服务器的概率
+    private double[] getZipfCdf()
+    {
+        double[] cdf = new double[serverCount];
+        double sum = 0;
+        for(int k = 1; k <= serverCount; k++) {
+            sum += 1.0 / Math.pow(k, serverSkew);
+            cdf[k - 1] = sum;
+        }
+        for(int k = 0; k < serverCount; k++)
+            cdf[k] /= sum;
+        return cdf;
+    }
+
+    /**
+     * 不放回地等概率从 1..population 中抽取 factor 个编号：把 1..population 看作数组做部分 Fisher–Yates 洗牌，
+     * 只记录被交换过的位置，因此每次只需要 factor 次随机数和 O(factor^2) 的查找
+     * @param random : 随机数生成器
+     * @param replicas : 写入抽取结果
+     * @param base : 写入的起始位置
+     * @param factor : 抽取的数目，不超过 population
+     * @param population : 编号的上限，如服务器数目
+     */
+    private static void sampleUniform(SplittableRandom random, int[] replicas, int base, int factor, int population)
+    {
+        //position[m] 位置上的值已被交换为 value[m]，其余位置 k 上的值为 k+1
+        int[] position = new int[factor];
+        int[] value = new int[factor];
+        int swaps = 0;
+        for(int r = 0; r < factor; r++) {
+            int k = r + random.nextInt(population - r);
+            int chosen = k + 1, current = r + 1;
+            int slot = -1;
+            for(int m = 0; m < swaps; m++) {
+                if(position[m] == k) {
+                    chosen = value[m];
+                    slot = m;
+                }
+                if(position[m] == r)
+                    current = value[m];
+            }
+            replicas[base + r] = chosen;
+            //位置 r 之后不再被抽取，只需要把原先位置 r 上的值放到位置 k 上
+            if(k != r) {
+                if(slot == -1) {
+                    slot = swaps++;
+                    position[slot] = k;
+                }
+                value[slot] = current;
+            }
+        }
+    }
+
+    /**
+     * 按 Zipf 分布抽取一个不在 chosen 中的服务器：从分布中去掉已选中服务器的概率后重新归一化，
+     * 只需要一次随机数，不会因为概率集中在少数服务器上而反复重试
+     * @param cdf : Zipf 分布的累积概率
+     * @param random : 随机数生成器
+     * @param chosen : 已选中的服务器
+     * @return 服务器编号
+     */
+    private static int sampleZipf(double[] cdf, SplittableRandom random, int[] chosen)
+    {
+        Arrays.sort(chosen);
+        double removed = 0;
+        for(int s : chosen)
+            removed += getZipfWeight(cdf, s);
+        //在去掉已选中服务器后的累积概率上查找 u，等价于在原累积概率上查找 u 加上编号不超过结果的已选中服务器的概率
+        double u = random.nextDouble() * (1 - removed);
+        for(int s : chosen) {
+            if(sampleZipf(cdf, u) < s)
+                break;
+            u += getZipfWeight(cdf, s);
+        }
+        int server = sampleZipf(cdf, u);
+        //浮点误差可能使结果落在已选中的服务器上，此时顺延到下一个未选中的服务器
+        while(Arrays.binarySearch(chosen, server) >= 0)
+            server = server % cdf.length + 1;
+        return server;
+    }
+
+    //编号为 k 的服务器被选中的概率
+    private static double getZipfWeight(double[] cdf, int k)
+    {
+        return k == 1 ? cdf[0] : cdf[k - 1] - cdf[k - 2];
+    }
+
+    //二分查找第一个累积概率大于 u 的服务器
+    private static int sampleZipf(double[] cdf, double u)
+    {
+        int low = 0, high = cdf.length - 1;
+        while(low < high) {
+            int mid = (low + high) >>> 1;
+            if(cdf[mid] > u)
+                high = mid;
+            else
+                low = mid + 1;
+        }
+        return low + 1;
+    }
+
+    //由种子、用途和编号确定的随机数生成器
+    private SplittableRandom random(long stream, int index)
+    {
+        return new SplittableRandom(seed ^ stream * index);
+    }
+}
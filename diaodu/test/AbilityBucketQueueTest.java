@@ -0,0 +1,66 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AbilityBucketQueueTest
+{
+    private static int max(int[] ability, int excluded)
+    {
+        int max = -1;
+        for(int s = 1; s < ability.length; s++) {
+            if(s != excluded)
+                max = Math.max(max, ability[s]);
+        }
+        return max;
+    }
+
+    //随机修改执行能力之后，getMax 与 getMaxExcluding 给出的服务器的执行能力为对应的最大值
+    @Test
+    public void matchesReferenceMaximum()
+    {
+        for(long seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            int serverCount = 1 + random.nextInt(40);
+            AbilityBucketQueue queue = new AbilityBucketQueue(serverCount);
+            int[] ability = new int[serverCount + 1];
+            for(int step = 0; step < 5000; step++) {
+                int server = 1 + random.nextInt(serverCount);
+                int op = random.nextInt(3);
+                if(op == 0) {
+                    //超过初始桶数时需要扩容
+                    ability[server] = random.nextInt(40);
+                    queue.set(server, ability[server]);
+                }
+                else {
+                    ability[server] = Math.max(0, ability[server] - 1);
+                    queue.decrease(server);
+                }
+                for(int s = 1; s <= serverCount; s++)
+                    assertEquals(ability[s], queue.get(s));
+
+                int top = queue.getMax();
+                assertEquals(max(ability, 0), ability[top], "seed " + seed);
+                int excluded = 1 + random.nextInt(serverCount);
+                int other = queue.getMaxExcluding(excluded);
+                if(serverCount == 1)
+                    assertEquals(excluded, other);
+                else {
+                    assertNotEquals(excluded, other, "seed " + seed);
+                    assertEquals(max(ability, excluded), ability[other], "seed " + seed);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void emptyQueue()
+    {
+        assertEquals(-1, new AbilityBucketQueue(0).getMax());
+        AbilityBucketQueue queue = new AbilityBucketQueue(2);
+        assertEquals(0, queue.get(queue.getMax()));
+        queue.decrease(1);
+        assertEquals(0, queue.get(1));
+    }
+}
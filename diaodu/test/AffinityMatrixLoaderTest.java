@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AffinityMatrixLoaderTest
+{
+    @TempDir
+    Path dir;
+
+    //与 relation_matrix.txt 相同的格式：第 i 行为任务 i 与任务 i+1..n 的紧密度
+    private static String text(AffinityMatrix matrix, String separator, String newline)
+    {
+        StringBuilder builder = new StringBuilder();
+        for(int i = 1; i < matrix.getTaskCount(); i++) {
+            for(int j = i + 1; j <= matrix.getTaskCount(); j++) {
+                builder.append(matrix.get(i, j));
+                if(j < matrix.getTaskCount())
+                    builder.append(separator);
+            }
+            builder.append(newline);
+        }
+        return builder.toString();
+    }
+
+    private Path write(String name, String content) throws IOException
+    {
+        Path file = dir.resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+
+    @Test
+    public void loadsTabSeparatedText() throws IOException
+    {
+        PackedAffinityMatrix expected = MappedAffinityMatrixTest.packed(40);
+        PackedAffinityMatrix matrix = AffinityMatrixLoader.loadText(write("matrix.txt", text(expected, "\t", "\n")));
+        MappedAffinityMatrixTest.assertSameMatrix(expected, matrix);
+    }
+
+    //空格分隔、CRLF 换行、空行以及最后一行没有换行符均可以解析
+    @Test
+    public void toleratesSeparatorsAndBlankLines() throws IOException
+    {
+        PackedAffinityMatrix expected = MappedAffinityMatrixTest.packed(12);
+        String content = "\n\r\n" + text(expected, " \t ", "\r\n\r\n");
+        content = content.substring(0, content.length() - 4);
+        AffinityMatrix matrix = AffinityMatrixLoader.load(write("matrix.txt", content));
+        MappedAffinityMatrixTest.assertSameMatrix(expected, matrix);
+    }
+
+    //转换为二进制格式后按文件内容直接映射，与解析文本得到的矩阵相同
+    @Test
+    public void convertRoundTrip() throws IOException
+    {
+        PackedAffinityMatrix expected = MappedAffinityMatrixTest.packed(33);
+        Path text = write("matrix.txt", text(expected, "\t", "\n"));
+        Path binary = dir.resolve("matrix.bin");
+        assertEquals(33, AffinityMatrixLoader.convert(text, binary));
+        AffinityMatrix matrix = AffinityMatrixLoader.load(binary);
+        assertTrue(matrix instanceof MappedAffinityMatrix);
+        MappedAffinityMatrixTest.assertSameMatrix(expected, matrix);
+        assertTrue(AffinityMatrixLoader.load(text) instanceof PackedAffinityMatrix);
+    }
+
+    @Test
+    public void rejectsMalformedText() throws IOException
+    {
+        //第 2 行少一个元素
+        assertRejected("1\t2\t3\n4\n5\n");
+        //第 2 行多一个元素
+        assertRejected("1\t2\t3\n4\t5\t6\n7\n");
+        //缺少最后一行
+        assertRejected("1\t2\t3\n4\t5\n");
+        //最后一行之后还有多余的行
+        assertRejected("1\t2\t3\n4\t5\n6\n7\n");
+        //紧密度超过 127，很长的数字也不会溢出
+        assertRejected("1\t2\t128\n4\t5\n6\n");
+        assertRejected("1\t2\t99999999999999999999\n4\t5\n6\n");
+        //无法解析的字符
+        assertRejected("1\t2\t3\n4\t-5\n6\n");
+        assertRejected("1,2,3\n4,5\n6\n");
+    }
+
+    @Test
+    public void acceptsMaximumValue() throws IOException
+    {
+        AffinityMatrix matrix = AffinityMatrixLoader.loadText(write("max.txt", "127\t0\t1\n2\t3\n4"));
+        assertEquals(4, matrix.getTaskCount());
+        assertEquals(127, matrix.get(2, 1));
+        assertEquals(4, matrix.get(4, 3));
+    }
+
+    private void assertRejected(String content) throws IOException
+    {
+        Path file = write("bad.txt", content);
+        assertThrows(IOException.class, () -> AffinityMatrixLoader.loadText(file), content);
+        assertThrows(IOException.class, () -> AffinityMatrixLoader.convert(file, dir.resolve("bad.bin")), content);
+    }
+}
@@ -0,0 +1,88 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AugmentPathTest
+{
+    //沿残留容量大于 0 的边能否从 start 到达 end
+    private static boolean reachable(ResidualGraph graph, int start, int end)
+    {
+        boolean[] seen = new boolean[graph.getNodeCount()];
+        Deque<Integer> queue = new ArrayDeque<>();
+        seen[start] = true;
+        queue.add(start);
+        while(!queue.isEmpty()) {
+            int node = queue.poll();
+            for(int arc = graph.arcBegin(node); arc < graph.arcEnd(node); arc++) {
+                int next = graph.getHead(arc);
+                if(graph.getResidual(arc) > 0 && !seen[next]) {
+                    seen[next] = true;
+                    queue.add(next);
+                }
+            }
+        }
+        return seen[end];
+    }
+
+    //同一个对象反复搜索：能找到路径当且仅当终点可达，找到的路径首尾相接、不重复经过结点，并且每条边都可用
+    @Test
+    public void findsPathIffReachable()
+    {
+        for(long seed = 0; seed < 30; seed++) {
+            ResidualGraph graph = LocalityInstances.generate(seed).newResidualGraph();
+            AugmentPath path = new AugmentPath(graph);
+            Random random = new Random(seed);
+            for(int step = 0; step < 200; step++) {
+                int start = random.nextInt(graph.getNodeCount());
+                int end = random.nextInt(graph.getNodeCount());
+                if(start == end)
+                    continue;
+                boolean found = path.hasAugmentPath(start, end);
+                assertEquals(reachable(graph, start, end), found, "seed " + seed + " step " + step);
+                if(!found)
+                    continue;
+
+                Set<Integer> nodes = new HashSet<>(Collections.singleton(start));
+                int node = start;
+                int[] residual = new int[path.getLength()];
+                for(int i = 0; i < path.getLength(); i++) {
+                    int arc = path.getArc(i);
+                    assertEquals(node, graph.getTail(arc));
+                    assertTrue(graph.getResidual(arc) > 0);
+                    residual[i] = graph.getResidual(arc);
+                    node = graph.getHead(arc);
+                    assertTrue(nodes.add(node));
+                }
+                assertEquals(end, node);
+
+                //偶尔沿路径推送一单位的流，改变之后的搜索
+                if(random.nextInt(3) == 0) {
+                    path.augment();
+                    for(int i = 0; i < path.getLength(); i++)
+                        assertEquals(residual[i] - 1, graph.getResidual(path.getArc(i)));
+                    ResidualGraphTest.assertLiveArcs(graph);
+                }
+            }
+        }
+    }
+
+    //从 S 到 T 反复增广直到不存在增广路径，得到的流量即为最大的本地分配数目
+    @Test
+    public void augmentsToMaximumMatching()
+    {
+        for(long seed = 0; seed < 60; seed++) {
+            ClusterModel model = LocalityInstances.generate(seed);
+            ResidualGraph graph = model.newResidualGraph();
+            AugmentPath path = new AugmentPath(graph);
+            int flow = 0;
+            while(path.hasAugmentPath(ResidualGraph.SOURCE, graph.getSink())) {
+                path.augment();
+                flow++;
+            }
+            assertEquals(LocalityInstances.maxMatching(model, Integer.MAX_VALUE), flow, "seed " + seed);
+            LocalityInstances.checkAssignment(model, LocalityInstances.getAssignment(graph));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CouplingScheduleTest
+{
+    //所有任务都被分配，并且每个服务器分配的任务数不超过其 slot 数目
+    private static void checkSlots(Assignment assignment, ClusterModel model, String message)
+    {
+        assertEquals(model.getTaskCount(), assignment.getAssignedCount(), message);
+        int[] load = new int[model.getServerCount() + 1];
+        for(int task = 1; task <= model.getTaskCount(); task++)
+            load[assignment.getServer(task)]++;
+        for(int s = 1; s <= model.getServerCount(); s++)
+            assertTrue(load[s] <= model.getServerSlot(s), message + " server " + s);
+    }
+
+    //HopcroftKarp 与 MaxFlow 得到的本地任务数目相同且为最大值，增广路径方式不超过最大值
+    @Test
+    public void enginesAgreeOnLocality()
+    {
+        for(long seed = 0; seed < 200; seed++) {
+            ClusterModel model = LocalityInstances.generate(seed);
+            int max = LocalityInstances.maxMatching(model, Integer.MAX_VALUE);
+            for(LocalityEngine engine : LocalityEngine.values()) {
+                String message = engine + " seed " + seed;
+                Assignment assignment = new CouplingSchedule(engine).schedule(model);
+                checkSlots(assignment, model, message);
+                if(engine == LocalityEngine.AUGMENT_PATH)
+                    assertTrue(assignment.getLocalTaskCount() <= max, message);
+                else
+                    assertEquals(max, assignment.getLocalTaskCount(), message);
+            }
+        }
+    }
+
+    @Test
+    public void enginesAgreeOnLargerModels()
+    {
+        for(long seed = 1; seed <= 5; seed++) {
+            ClusterModel model = new ClusterModel(new WorkloadGenerator(200, 2000).setSeed(seed)
+                    .setServerSkew(1.2).setAffinityDegree(4).generate());
+            int max = new MaxFlow(model.newResidualGraph()).solve();
+            for(LocalityEngine engine : new LocalityEngine[]{LocalityEngine.HOPCROFT_KARP, LocalityEngine.MAX_FLOW}) {
+                Assignment assignment = new CouplingSchedule(engine).schedule(model);
+                checkSlots(assignment, model, engine + " seed " + seed);
+                assertEquals(max, assignment.getLocalTaskCount(), engine + " seed " + seed);
+            }
+        }
+    }
+}
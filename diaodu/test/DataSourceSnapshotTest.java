@@ -0,0 +1,116 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataSourceSnapshotTest
+{
+    @TempDir
+    Path dir;
+
+    private DataSource roundTrip(DataSource ds) throws IOException
+    {
+        Path file = dir.resolve("snapshot.bin");
+        ds.save(file);
+        DataSource loaded = DataSource.load(file);
+        assertSameDataSource(ds, loaded);
+        return loaded;
+    }
+
+    static void assertSameDataSource(DataSource expected, DataSource actual)
+    {
+        IdRegistry registry = expected.getIdRegistry();
+        assertEquals(registry.getServerCount(), actual.getIdRegistry().getServerCount());
+        assertEquals(registry.getTaskCount(), actual.getIdRegistry().getTaskCount());
+        for(int i = 1; i <= registry.getServerCount(); i++)
+            assertEquals(registry.getServerName(i), actual.getIdRegistry().getServerName(i));
+        for(int i = 1; i <= registry.getTaskCount(); i++)
+            assertEquals(registry.getTaskName(i), actual.getIdRegistry().getTaskName(i));
+
+        assertEquals(expected.getTaskCount(), actual.getTaskCount());
+        assertEquals(expected.getServers().size(), actual.getServers().size());
+        for(int k = 0; k < expected.getServers().size(); k++) {
+            Server server = expected.getServers().get(k), other = actual.getServers().get(k);
+            assertEquals(server.getServerName(), other.getServerName());
+            assertEquals(server.getLoad(), other.getLoad());
+            assertEquals(server.getSlot(), other.getSlot());
+            assertEquals(server.getAllocatedTask(), other.getAllocatedTask());
+        }
+        assertEquals(expected.getTaskSet(), actual.getTaskSet());
+        assertEquals(expected.getPreferedTasks(), actual.getPreferedTasks());
+        assertEquals(expected.getEdges().keySet(), actual.getEdges().keySet());
+
+        AffinityMatrix relation = expected.getRelationValue();
+        if(relation == null) {
+            assertNull(actual.getRelationValue());
+            return;
+        }
+        assertEquals(relation.getClass(), actual.getRelationValue().getClass());
+        MappedAffinityMatrixTest.assertSameMatrix(relation, actual.getRelationValue());
+    }
+
+    @Test
+    public void packedAffinityRoundTrip() throws IOException
+    {
+        DataSource ds = new WorkloadGenerator(20, 150).setSeed(3).generate();
+        ds.getServers().get(0).addTask("t1");
+        ds.getServers().get(0).addTask("t2");
+        ds.getServers().get(1).setLoad(2);
+        DataSource loaded = roundTrip(ds);
+
+        //恢复的数据源构建出相同的集群模型
+        ClusterModel model = new ClusterModel(ds), other = new ClusterModel(loaded);
+        for(int task = 1; task <= model.getTaskCount(); task++) {
+            int[] replicas = model.getReplicaServers(task).clone(), otherReplicas = other.getReplicaServers(task).clone();
+            Arrays.sort(replicas);
+            Arrays.sort(otherReplicas);
+            assertArrayEquals(replicas, otherReplicas);
+        }
+        for(int server = 1; server <= model.getServerCount(); server++) {
+            assertEquals(model.getServerSlot(server), other.getServerSlot(server));
+            assertEquals(model.getServerLoad(server), other.getServerLoad(server));
+        }
+    }
+
+    @Test
+    public void sparseAffinityRoundTrip() throws IOException
+    {
+        roundTrip(new WorkloadGenerator(30, 300).setSeed(5).setReplicationFactor(3).setAffinityDegree(6).generate());
+    }
+
+    @Test
+    public void missingAffinityRoundTrip() throws IOException
+    {
+        DataSource ds = new WorkloadGenerator(5, 20).setSeed(9).generate();
+        roundTrip(new DataSource(ds.getIdRegistry(), ds.getServers(), ds.getTaskSet(), ds.getPreferedTasks(),
+                ds.getEdges(), ds.getTaskCount(), null));
+    }
+
+    //不是快照文件或者文件不完整时报错
+    @Test
+    public void rejectsMalformedFiles() throws IOException
+    {
+        Path file = dir.resolve("snapshot.bin");
+        new WorkloadGenerator(10, 40).setSeed(1).generate().save(file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        Path truncated = dir.resolve("truncated.bin");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(IOException.class, () -> DataSource.load(truncated));
+
+        Path badMagic = dir.resolve("magic.bin");
+        byte[] copy = bytes.clone();
+        copy[0] ^= 1;
+        Files.write(badMagic, copy);
+        assertThrows(IOException.class, () -> DataSource.load(badMagic));
+
+        Path matrix = dir.resolve("matrix.bin");
+        MappedAffinityMatrix.save(MappedAffinityMatrixTest.packed(5), matrix);
+        assertThrows(IOException.class, () -> DataSource.load(matrix));
+    }
+}
@@ -0,0 +1,204 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlowCandidatesTest
+{
+    /**
+     * 得分和版本由测试控制的评分：得分默认由路径上的边决定，可以单独修改某条流的得分，修改时版本加 1
+     */
+    private static class TableScorer implements FlowCandidates.Scorer
+    {
+        private final Map<String, Integer> scores = new HashMap<>();
+
+        private final Map<String, Integer> versions = new HashMap<>();
+
+        private int scoreCount = 0;
+
+        static int defaultScore(int[] arcs)
+        {
+            int score = 0;
+            for(int arc : arcs)
+                score += arc * 31 % 17;
+            return score;
+        }
+
+        void update(int[] arcs, int score)
+        {
+            String key = Arrays.toString(arcs);
+            scores.put(key, score);
+            versions.merge(key, 1, Integer::sum);
+        }
+
+        int current(int[] arcs)
+        {
+            return scores.getOrDefault(Arrays.toString(arcs), defaultScore(arcs));
+        }
+
+        @Override
+        public void score(Flow flow)
+        {
+            scoreCount++;
+            flow.setScore(current(flow.getArcs()), 0, getVersion(flow.getArcs()));
+        }
+
+        @Override
+        public int getVersion(int[] arcs)
+        {
+            return versions.getOrDefault(Arrays.toString(arcs), 0);
+        }
+    }
+
+    //已经沿 S 到 T 推送过部分流的残量图，其中存在经过回撤边的较长路径
+    private static ResidualGraph partialFlow(long seed)
+    {
+        ResidualGraph graph = LocalityInstances.generate(seed).newResidualGraph();
+        AugmentPath path = new AugmentPath(graph);
+        for(int i = 0; i < seed % 4 && path.hasAugmentPath(ResidualGraph.SOURCE, graph.getSink()); i++)
+            path.augment();
+        return graph;
+    }
+
+    //穷举从 start 到 end 的全部简单路径
+    private static void allPaths(ResidualGraph graph, int node, int end, boolean[] visited, Deque<Integer> path, List<int[]> result)
+    {
+        if(node == end) {
+            int[] arcs = new int[path.size()];
+            int i = 0;
+            for(Iterator<Integer> iterator = path.descendingIterator(); iterator.hasNext(); )
+                arcs[i++] = iterator.next();
+            result.add(arcs);
+            return;
+        }
+        visited[node] = true;
+        for(int arc = graph.arcBegin(node); arc < graph.arcEnd(node); arc++) {
+            int head = graph.getHead(arc);
+            if(graph.getResidual(arc) > 0 && !visited[head]) {
+                path.push(arc);
+                allPaths(graph, head, end, visited, path, result);
+                path.pop();
+            }
+        }
+        visited[node] = false;
+    }
+
+    //搜索不受预算限制时，给出的恰好是得分最高的 maxCount 条简单路径，并且按得分从高到低排列
+    @Test
+    public void keepsTopKInScoreOrder()
+    {
+        for(long seed = 0; seed < 60; seed++) {
+            ResidualGraph graph = partialFlow(seed);
+            for(int server = 1; server <= graph.getServerCount(); server++) {
+                List<int[]> paths = new ArrayList<>();
+                allPaths(graph, server, graph.getSink(), new boolean[graph.getNodeCount()], new ArrayDeque<>(), paths);
+                List<Integer> expected = new ArrayList<>();
+                for(int[] arcs : paths)
+                    expected.add(TableScorer.defaultScore(arcs));
+                expected.sort(Collections.reverseOrder());
+
+                for(int maxCount : new int[]{0, 1, 3, 1000}) {
+                    FlowCandidates candidates = new FlowCandidates(graph, server, graph.getSink(), maxCount,
+                            Long.MAX_VALUE, Long.MAX_VALUE, new TableScorer());
+                    List<Integer> actual = new ArrayList<>();
+                    while(candidates.hasNext()) {
+                        Flow flow = candidates.next();
+                        assertEquals(server, graph.getTail(flow.getArcs()[0]));
+                        assertEquals(graph.getSink(), graph.getHead(flow.getArcs()[flow.getArcs().length - 1]));
+                        actual.add(flow.getScore());
+                    }
+                    assertEquals(expected.subList(0, Math.min(maxCount, expected.size())), actual,
+                            "seed " + seed + " server " + server + " maxCount " + maxCount);
+                }
+            }
+        }
+    }
+
+    //搜索步数耗尽时提前停止，给出的流不超过检查的边数
+    @Test
+    public void stopsAtStepBudget()
+    {
+        ResidualGraph graph = new ClusterModel(new WorkloadGenerator(20, 200).setSeed(1).setReplicationFactor(3)
+                .generate()).newResidualGraph();
+        FlowCandidates candidates = new FlowCandidates(graph, 1, graph.getSink(), 1000, 5, Long.MAX_VALUE, new TableScorer());
+        int count = 0;
+        while(candidates.hasNext()) {
+            candidates.next();
+            count++;
+        }
+        assertTrue(count <= 5, "count " + count);
+    }
+
+    //时间预算为 Long.MAX_VALUE 时不限制时间，搜索只在步数用完时停止
+    @Test
+    public void unlimitedBudgetRunsToStepLimit()
+    {
+        //推送最大流之后经过回撤边的路径很多，搜索量远大于每次检查预算的间隔 1024
+        ResidualGraph graph = new ClusterModel(new WorkloadGenerator(20, 200).setSeed(1).setReplicationFactor(3)
+                .generate()).newResidualGraph();
+        AugmentPath path = new AugmentPath(graph);
+        while(path.hasAugmentPath(ResidualGraph.SOURCE, graph.getSink()))
+            path.augment();
+        long[] scanned = new long[1];
+        ScheduleListener listener = new ScheduleListener()
+        {
+            @Override
+            public void onSearch(int visitedNodes, long scannedArcs)
+            {
+                scanned[0] = Math.max(scanned[0], scannedArcs);
+            }
+        };
+        for(int server = 1; server <= graph.getServerCount(); server++)
+            new FlowCandidates(graph, server, graph.getSink(), 1000, 5000, Long.MAX_VALUE, new TableScorer(), listener).hasNext();
+        assertEquals(5001, scanned[0]);
+    }
+
+    //过期的流在取出前重新计算得分；得分只降不升时给出的顺序与按当前得分排序相同
+    @Test
+    public void rescoresStaleFlows()
+    {
+        //取候选流较多的一个起点
+        ResidualGraph graph = null;
+        int start = 0;
+        List<int[]> paths = new ArrayList<>();
+        for(long seed = 0; paths.size() < 10; seed++) {
+            graph = partialFlow(seed);
+            for(start = 1; start <= graph.getServerCount() && paths.size() < 10; start++) {
+                paths.clear();
+                allPaths(graph, start, graph.getSink(), new boolean[graph.getNodeCount()], new ArrayDeque<>(), paths);
+            }
+            start--;
+        }
+        TableScorer scorer = new TableScorer();
+        FlowCandidates candidates = new FlowCandidates(graph, start, graph.getSink(), 1000, Long.MAX_VALUE, Long.MAX_VALUE, scorer);
+        assertTrue(candidates.hasNext());
+        int initialScores = scorer.scoreCount;
+        assertEquals(paths.size(), initialScores);
+
+        Random random = new Random(7);
+        Set<String> remaining = new HashSet<>();
+        for(int[] arcs : paths)
+            remaining.add(Arrays.toString(arcs));
+        while(candidates.hasNext()) {
+            //随机降低部分尚未取出的流的得分
+            for(int[] arcs : paths) {
+                if(remaining.contains(Arrays.toString(arcs)) && random.nextInt(3) == 0)
+                    scorer.update(arcs, scorer.current(arcs) - 1 - random.nextInt(5));
+            }
+            int best = Integer.MIN_VALUE;
+            for(int[] arcs : paths) {
+                if(remaining.contains(Arrays.toString(arcs)))
+                    best = Math.max(best, scorer.current(arcs));
+            }
+
+            Flow flow = candidates.next();
+            assertEquals(scorer.getVersion(flow.getArcs()), flow.getVersion());
+            assertEquals(scorer.current(flow.getArcs()), flow.getScore());
+            assertEquals(best, flow.getScore());
+            assertTrue(remaining.remove(Arrays.toString(flow.getArcs())));
+        }
+        assertTrue(remaining.isEmpty());
+        assertTrue(scorer.scoreCount > initialScores);
+    }
+}
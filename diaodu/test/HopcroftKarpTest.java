@@ -0,0 +1,42 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HopcroftKarpTest
+{
+    //匹配数目等于穷举得到的最大值，并且逐层放开 slot 后最大负载为所有最大分配中的最小值
+    @Test
+    public void matchesBruteForce()
+    {
+        for(long seed = 0; seed < 300; seed++) {
+            ClusterModel model = LocalityInstances.generate(seed);
+            ResidualGraph graph = model.newResidualGraph();
+            HopcroftKarp matching = new HopcroftKarp(graph);
+            int size = matching.solve();
+            assertEquals(LocalityInstances.maxMatching(model, Integer.MAX_VALUE), size, "seed " + seed);
+
+            int[] server = new int[model.getTaskCount() + 1];
+            int count = 0;
+            for(int task = 1; task <= model.getTaskCount(); task++) {
+                server[task] = Math.max(0, matching.getServer(graph.getTaskNode(task)));
+                if(server[task] != 0)
+                    count++;
+            }
+            assertEquals(size, count, "seed " + seed);
+            int maxLoad = LocalityInstances.checkAssignment(model, server);
+            assertEquals(LocalityInstances.minMaxLoad(model), maxLoad, "seed " + seed);
+        }
+    }
+
+    //较大规模的实例上匹配数目与最大流相同
+    @Test
+    public void matchesMaxFlow()
+    {
+        for(long seed = 1; seed <= 5; seed++) {
+            ClusterModel model = new ClusterModel(new WorkloadGenerator(200, 2000).setSeed(seed)
+                    .setServerSkew(1.2).setAffinityDegree(4).generate());
+            int expected = new MaxFlow(model.newResidualGraph()).solve();
+            assertEquals(expected, new HopcroftKarp(model.newResidualGraph()).solve(), "seed " + seed);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedMinHeapTest
+{
+    //按 (键值, 编号) 排序的参照实现
+    private static TreeSet<long[]> reference()
+    {
+        return new TreeSet<>((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+    }
+
+    //随机的加入、增大、减小和删除之后，堆顶总是键值最小（键值相同时编号最小）的元素
+    @Test
+    public void matchesReferenceOrdering()
+    {
+        int capacity = 64;
+        for(long seed = 0; seed < 20; seed++) {
+            Random random = new Random(seed);
+            IndexedMinHeap heap = new IndexedMinHeap(capacity);
+            TreeSet<long[]> expected = reference();
+            int[] key = new int[capacity + 1];
+            for(int step = 0; step < 5000; step++) {
+                int id = 1 + random.nextInt(capacity);
+                if(random.nextInt(4) == 0) {
+                    heap.remove(id);
+                    expected.remove(new long[]{key[id], id});
+                }
+                else {
+                    if(heap.contains(id))
+                        expected.remove(new long[]{key[id], id});
+                    key[id] = random.nextInt(10);
+                    heap.put(id, key[id]);
+                    expected.add(new long[]{key[id], id});
+                }
+                assertEquals(expected.size(), heap.size());
+                assertEquals(expected.isEmpty() ? -1 : (int) expected.first()[1], heap.peek(), "seed " + seed);
+                assertEquals(expected.contains(new long[]{key[id], id}), heap.contains(id));
+            }
+
+            //依次取出堆顶得到完整的顺序
+            while(!expected.isEmpty()) {
+                long[] first = expected.pollFirst();
+                assertEquals((int) first[1], heap.peek());
+                assertEquals((int) first[0], heap.getKey(heap.peek()));
+                heap.remove(heap.peek());
+            }
+            assertTrue(heap.isEmpty());
+            assertEquals(-1, heap.peek());
+        }
+    }
+
+    //删除不在堆中的元素不做任何操作
+    @Test
+    public void removeAbsentIsNoOp()
+    {
+        IndexedMinHeap heap = new IndexedMinHeap(3);
+        heap.put(2, 5);
+        heap.remove(1);
+        heap.remove(2);
+        heap.remove(2);
+        assertTrue(heap.isEmpty());
+        heap.put(3, 1);
+        heap.put(1, 1);
+        assertEquals(1, heap.peek());
+        heap.put(1, 2);
+        assertEquals(3, heap.peek());
+    }
+}
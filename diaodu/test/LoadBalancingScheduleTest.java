@@ -0,0 +1,73 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoadBalancingScheduleTest
+{
+    //服务器已有随机的负载（不超过 slot 数目）的小规模实例
+    private static ClusterModel loadedModel(long seed)
+    {
+        DataSource ds = LocalityInstances.dataSource(seed);
+        Random random = new Random(seed);
+        for(Server server : ds.getServers())
+            server.setLoad(random.nextInt(server.getSlot() + 1));
+        return new ClusterModel(ds);
+    }
+
+    //每个服务器的总负载不超过 limit（且不超过 slot 数目）时最多能分配的本地任务数目
+    private static int maxFlow(ClusterModel model, int limit)
+    {
+        ResidualGraph graph = model.newResidualGraph();
+        for(int arc = graph.arcBegin(ResidualGraph.SOURCE); arc < graph.arcEnd(ResidualGraph.SOURCE); arc++) {
+            int server = graph.getHead(arc);
+            graph.setCapacity(arc, Math.max(0, Math.min(limit, model.getServerSlot(server)) - model.getServerLoad(server)));
+        }
+        return new MaxFlow(graph).solve();
+    }
+
+    //已有负载占用 slot：分配的任务都是本地任务，已有负载加上新分配的任务不超过 slot 数目
+    private static int[] checkLoad(Assignment assignment, ClusterModel model, String message)
+    {
+        int[] load = new int[model.getServerCount() + 1];
+        for(int task = 1; task <= model.getTaskCount(); task++) {
+            int server = assignment.getServer(task);
+            if(server == 0)
+                continue;
+            assertTrue(model.isLocal(task, server), message);
+            load[server]++;
+        }
+        for(int s = 1; s <= model.getServerCount(); s++)
+            assertTrue(model.getServerLoad(s) + load[s] <= model.getServerSlot(s), message + " server " + s);
+        return load;
+    }
+
+    //HopcroftKarp 与 MaxFlow 从已有负载开始逐层放开 slot：分配数目为最大值，得到新任务的服务器总负载不超过所有最大分配中的最小值
+    @Test
+    public void enginesHonorExistingLoad()
+    {
+        for(long seed = 0; seed < 200; seed++) {
+            ClusterModel model = loadedModel(seed);
+            int maxSlot = 0;
+            for(int s = 1; s <= model.getServerCount(); s++)
+                maxSlot = Math.max(maxSlot, model.getServerSlot(s));
+            int expected = maxFlow(model, maxSlot);
+            int limit = 0;
+            while(maxFlow(model, limit) < expected)
+                limit++;
+
+            for(LocalityEngine engine : new LocalityEngine[]{LocalityEngine.HOPCROFT_KARP, LocalityEngine.MAX_FLOW}) {
+                String message = engine + " seed " + seed;
+                Assignment assignment = new LoadBalancingSchedule(engine).schedule(model);
+                assertEquals(expected, assignment.getAssignedCount(), message);
+                int[] load = checkLoad(assignment, model, message);
+                for(int s = 1; s <= model.getServerCount(); s++) {
+                    if(load[s] > 0)
+                        assertTrue(model.getServerLoad(s) + load[s] <= limit, message + " server " + s);
+                }
+            }
+            checkLoad(new LoadBalancingSchedule(LocalityEngine.AUGMENT_PATH).schedule(model), model, "augment-path seed " + seed);
+        }
+    }
+}
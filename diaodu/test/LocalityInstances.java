@@ -0,0 +1,133 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 测试用的小规模实例：由种子生成的集群模型，以及穷举得到的最大本地分配数目、最小的最大负载和最小费用，
+ * 用于检查各个匹配引擎的结果
+ */
+public class LocalityInstances
+{
+    /**
+     * 2..5 个服务器、3..9 个任务，slot 为 1..3，奇数种子的副本集中在编号较小的服务器上，使得服务器之间存在竞争
+     * @param seed : 种子
+     * @return
+     */
+    public static ClusterModel generate(long seed)
+    {
+        return new ClusterModel(dataSource(seed));
+    }
+
+    //generate 所用的数据源，可以在构建集群模型之前修改服务器的负载
+    public static DataSource dataSource(long seed)
+    {
+        return new WorkloadGenerator(2 + (int) (seed % 4), 3 + (int) (seed % 7))
+                .setSeed(seed)
+                .setSlotRange(1, 3)
+                .setReplicationFactor(1 + (int) (seed % 3))
+                .setServerSkew(seed % 2 == 0 ? 0 : 1.5)
+                .setAffinityDegree(2)
+                .generate();
+    }
+
+    /**
+     * 穷举每个任务分配到哪个副本服务器（或不分配）
+     * @param model : 集群模型
+     * @param limit : 每个服务器最多分配的任务数目，实际上限为其与 slot 数目的较小值
+     * @return 最大本地分配数目
+     */
+    public static int maxMatching(ClusterModel model, int limit)
+    {
+        return search(model, 1, new int[model.getServerCount() + 1], limit);
+    }
+
+    private static int search(ClusterModel model, int task, int[] load, int limit)
+    {
+        if(task > model.getTaskCount())
+            return 0;
+        int best = search(model, task + 1, load, limit);
+        for(int server : model.getReplicaServers(task)) {
+            if(load[server] < Math.min(limit, model.getServerSlot(server))) {
+                load[server]++;
+                best = Math.max(best, 1 + search(model, task + 1, load, limit));
+                load[server]--;
+            }
+        }
+        return best;
+    }
+
+    //所有最大本地分配中服务器最大负载的最小值
+    public static int minMaxLoad(ClusterModel model)
+    {
+        int max = maxMatching(model, Integer.MAX_VALUE);
+        int limit = 0;
+        while(maxMatching(model, limit) < max)
+            limit++;
+        return limit;
+    }
+
+    /**
+     * 所有最大本地分配中 服务器->任务 费用之和的最小值
+     * @param model : 集群模型
+     * @param cost : cost[服务器编号][任务编号] 为任务分配到该服务器的费用
+     * @return
+     */
+    public static long minCost(ClusterModel model, int[][] cost)
+    {
+        long[] best = search(model, 1, new int[model.getServerCount() + 1], cost);
+        return best[1];
+    }
+
+    //返回 {分配数目, 费用}，分配数目多者优先，其次费用小者优先
+    private static long[] search(ClusterModel model, int task, int[] load, int[][] cost)
+    {
+        if(task > model.getTaskCount())
+            return new long[]{0, 0};
+        long[] best = search(model, task + 1, load, cost);
+        for(int server : model.getReplicaServers(task)) {
+            if(load[server] < model.getServerSlot(server)) {
+                load[server]++;
+                long[] rest = search(model, task + 1, load, cost);
+                long count = rest[0] + 1, total = rest[1] + cost[server][task];
+                if(count > best[0] || (count == best[0] && total < best[1]))
+                    best = new long[]{count, total};
+                load[server]--;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 检查分配只使用副本所在的服务器，并且不超过服务器的 slot 数目
+     * @param model : 集群模型
+     * @param server : server[任务编号] 为分配到的服务器编号，0 表示没有分配
+     * @return 服务器的最大负载
+     */
+    public static int checkAssignment(ClusterModel model, int[] server)
+    {
+        int[] load = new int[model.getServerCount() + 1];
+        for(int task = 1; task <= model.getTaskCount(); task++) {
+            if(server[task] == 0)
+                continue;
+            assertTrue(model.isLocal(task, server[task]), "任务 " + task + " 分配到了非本地的服务器 " + server[task]);
+            load[server[task]]++;
+        }
+        int maxLoad = 0;
+        for(int s = 1; s <= model.getServerCount(); s++) {
+            assertTrue(load[s] <= model.getServerSlot(s), "服务器 " + s + " 的负载超过 slot 数目");
+            maxLoad = Math.max(maxLoad, load[s]);
+        }
+        return maxLoad;
+    }
+
+    /**
+     * 由残量图中反向的 服务器->任务 边得到分配结果
+     * @param graph : 求解后的残量图
+     * @return server[任务编号] 为分配到的服务器编号，0 表示没有分配
+     */
+    public static int[] getAssignment(ResidualGraph graph)
+    {
+        int[] server = new int[graph.getTaskCount() + 1];
+        for(int task = 1; task <= graph.getTaskCount(); task++)
+            server[task] = Math.max(0, graph.getAssignedServer(graph.getTaskNode(task)));
+        return server;
+    }
+}
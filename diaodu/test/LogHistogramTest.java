@@ -0,0 +1,143 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogHistogramTest
+{
+    //记录 value 与一个更大的值后，第一个记录所在桶的上界，即 value 所在桶的上界
+    private static long upperBound(LogHistogram histogram, long value)
+    {
+        histogram.reset();
+        histogram.record(value);
+        histogram.record(Long.MAX_VALUE);
+        return histogram.getValueAtPercentile(50);
+    }
+
+    //每组 8 个桶时小于 8 的值各占一个桶，更大的值所在桶的上界与值的相对误差不超过 1/8
+    @Test
+    public void bucketBounds()
+    {
+        LogHistogram histogram = new LogHistogram(3);
+        for(long value = 0; value < 8; value++)
+            assertEquals(value, upperBound(histogram, value));
+        assertEquals(8, upperBound(histogram, 8));
+        assertEquals(15, upperBound(histogram, 15));
+        assertEquals(17, upperBound(histogram, 16));
+        assertEquals(17, upperBound(histogram, 17));
+        assertEquals(19, upperBound(histogram, 18));
+        assertEquals(1151, upperBound(histogram, 1024));
+
+        for(int bit = 3; bit < 62; bit++) {
+            for(long value : new long[]{(1L << bit) - 1, 1L << bit, (1L << bit) + 1, (1L << bit) * 3 / 2}) {
+                long bound = upperBound(histogram, value);
+                assertTrue(bound >= value && bound - value <= value / 8, value + " -> " + bound);
+            }
+        }
+        //最大值也有对应的桶，分位数不超过记录的最大值
+        assertEquals(Long.MAX_VALUE, upperBound(histogram, Long.MAX_VALUE));
+    }
+
+    //桶数可以配置，上界与值的相对误差不超过 1/2^subBucketBits
+    @Test
+    public void configurablePrecision()
+    {
+        for(int bits : new int[]{0, 1, 6, 10}) {
+            LogHistogram histogram = new LogHistogram(bits);
+            for(long value = 0; value < 1 << bits; value++)
+                assertEquals(value, upperBound(histogram, value), "bits " + bits);
+            for(int bit = bits; bit < 62; bit++) {
+                for(long value : new long[]{(1L << bit) - 1, 1L << bit, (1L << bit) + 1, (1L << bit) * 3 / 2}) {
+                    long bound = upperBound(histogram, value);
+                    assertTrue(bound >= value && bound - value <= value >> bits, "bits " + bits + ": " + value + " -> " + bound);
+                }
+            }
+            assertEquals(Long.MAX_VALUE, upperBound(histogram, Long.MAX_VALUE));
+        }
+        assertEquals(1151, upperBound(new LogHistogram(3), 1024));
+        assertEquals(1031, upperBound(new LogHistogram(), 1024));
+        assertEquals(1039, upperBound(new LogHistogram(6), 1024));
+        assertThrows(IllegalArgumentException.class, () -> new LogHistogram(-1));
+        assertThrows(IllegalArgumentException.class, () -> new LogHistogram(17));
+    }
+
+    @Test
+    public void percentilesOfUniformValues()
+    {
+        LogHistogram histogram = new LogHistogram();
+        for(long value = 1; value <= 1000; value++)
+            histogram.record(value);
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 1e-9);
+        for(int percentile : new int[]{1, 25, 50, 90, 99}) {
+            long value = histogram.getValueAtPercentile(percentile);
+            long exact = percentile * 10;
+            assertTrue(value >= exact && value - exact <= exact / 128, percentile + " -> " + value);
+        }
+        assertEquals(1000, histogram.getValueAtPercentile(100));
+        assertEquals(1, histogram.getValueAtPercentile(0));
+    }
+
+    //默认精度下长尾分布的 p99、p99.9 与精确的分位数相比相对误差不超过 1/128，即至少 2 位有效数字
+    @Test
+    public void tailPercentilesWithinTwoSignificantDigits()
+    {
+        Random random = new Random(11);
+        for(int round = 0; round < 5; round++) {
+            LogHistogram histogram = new LogHistogram();
+            long[] values = new long[20000];
+            for(int i = 0; i < values.length; i++) {
+                //对数正态分布，模拟以纳秒计的用时
+                values[i] = (long) Math.exp(12 + 2 * random.nextGaussian());
+                histogram.record(values[i]);
+            }
+            Arrays.sort(values);
+            for(double percentile : new double[]{50, 90, 99, 99.9}) {
+                long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+                long value = histogram.getValueAtPercentile(percentile);
+                assertTrue(value >= exact, percentile + ": " + value + " < " + exact);
+                assertTrue((value - exact) / (double) exact <= 1.0 / 128, percentile + ": " + value + " vs " + exact);
+            }
+        }
+    }
+
+    @Test
+    public void negativeValuesAndReset()
+    {
+        LogHistogram histogram = new LogHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(0, histogram.getMean(), 0);
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(100));
+
+        histogram.record(100);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    //多个线程同时记录不会丢失
+    @Test
+    public void concurrentRecording() throws InterruptedException
+    {
+        LogHistogram histogram = new LogHistogram();
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for(int i = 0; i < 10000; i++)
+                    histogram.record(i % 100);
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads)
+            thread.join();
+        assertEquals(40000, histogram.getCount());
+        assertEquals(99, histogram.getMax());
+        assertEquals(49.5, histogram.getMean(), 1e-9);
+    }
+}
@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedAffinityMatrixTest
+{
+    @TempDir
+    Path dir;
+
+    static PackedAffinityMatrix packed(int n)
+    {
+        PackedAffinityMatrix matrix = new PackedAffinityMatrix(n);
+        for(int i = 1; i <= n; i++) {
+            for(int j = i + 1; j <= n; j++)
+                matrix.set(i, j, PackedAffinityMatrixTest.value(i, j));
+        }
+        return matrix;
+    }
+
+    static void assertSameMatrix(AffinityMatrix expected, AffinityMatrix actual)
+    {
+        assertEquals(expected.getTaskCount(), actual.getTaskCount());
+        for(int i = 1; i <= expected.getTaskCount(); i++) {
+            for(int j = 1; j <= expected.getTaskCount(); j++)
+                assertEquals(expected.get(i, j), actual.get(i, j), i + "," + j);
+        }
+    }
+
+    //保存后映射得到相同的矩阵，文件长度为文件头加上三角元素个数
+    @Test
+    public void saveAndOpenRoundTrip() throws IOException
+    {
+        PackedAffinityMatrix matrix = packed(45);
+        Path file = dir.resolve("matrix.bin");
+        MappedAffinityMatrix.save(matrix, file);
+        assertEquals(MappedAffinityMatrix.HEADER_SIZE + PackedAffinityMatrix.getSize(45), Files.size(file));
+        assertSameMatrix(matrix, MappedAffinityMatrix.open(file));
+    }
+
+    //通过 create 填充并写回后可以重新映射，只读映射不能修改
+    @Test
+    public void createFillAndReopen() throws IOException
+    {
+        PackedAffinityMatrix matrix = packed(30);
+        Path file = dir.resolve("matrix.bin");
+        MappedAffinityMatrix created = MappedAffinityMatrix.create(file, 30);
+        for(int i = 1; i <= 30; i++) {
+            for(int j = 1; j < i; j++)
+                created.set(i, j, matrix.get(i, j));
+        }
+        created.force();
+        assertSameMatrix(matrix, created);
+
+        MappedAffinityMatrix opened = MappedAffinityMatrix.open(file);
+        assertSameMatrix(matrix, opened);
+        assertThrows(UnsupportedOperationException.class, () -> opened.set(1, 2, 1));
+    }
+
+    //只有一个任务时没有元素
+    @Test
+    public void singleTask() throws IOException
+    {
+        Path file = dir.resolve("single.bin");
+        MappedAffinityMatrix.save(new PackedAffinityMatrix(1), file);
+        MappedAffinityMatrix matrix = MappedAffinityMatrix.open(file);
+        assertEquals(1, matrix.getTaskCount());
+        assertEquals(0, matrix.get(1, 1));
+    }
+
+    //魔数、版本或长度不正确的文件被拒绝
+    @Test
+    public void rejectsMalformedFiles() throws IOException
+    {
+        Path file = dir.resolve("matrix.bin");
+        MappedAffinityMatrix.save(packed(10), file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        Path badMagic = dir.resolve("magic.bin");
+        byte[] copy = bytes.clone();
+        copy[0] ^= 1;
+        Files.write(badMagic, copy);
+        assertThrows(IOException.class, () -> MappedAffinityMatrix.open(badMagic));
+
+        Path badVersion = dir.resolve("version.bin");
+        copy = bytes.clone();
+        ByteBuffer.wrap(copy).putInt(4, MappedAffinityMatrix.VERSION + 1);
+        Files.write(badVersion, copy);
+        assertThrows(IOException.class, () -> MappedAffinityMatrix.open(badVersion));
+
+        Path truncated = dir.resolve("truncated.bin");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> MappedAffinityMatrix.open(truncated));
+
+        Path empty = dir.resolve("empty.bin");
+        Files.write(empty, new byte[0]);
+        assertThrows(IOException.class, () -> MappedAffinityMatrix.open(empty));
+    }
+}
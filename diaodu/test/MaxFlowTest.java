@@ -0,0 +1,46 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MaxFlowTest
+{
+    //流量等于穷举得到的最大本地分配数目，并且分配满足副本与 slot 的限制
+    @Test
+    public void solveMatchesBruteForce()
+    {
+        for(long seed = 0; seed < 300; seed++) {
+            ClusterModel model = LocalityInstances.generate(seed);
+            ResidualGraph graph = model.newResidualGraph();
+            int flow = new MaxFlow(graph).solve();
+            assertEquals(LocalityInstances.maxMatching(model, Integer.MAX_VALUE), flow, "seed " + seed);
+            LocalityInstances.checkAssignment(model, LocalityInstances.getAssignment(graph));
+        }
+    }
+
+    //逐层放开 slot 后流量不变，最大负载为所有最大分配中的最小值，并且 S->服务器 的容量恢复为 slot 数目
+    @Test
+    public void solveBalancedMinimizesMaxLoad()
+    {
+        for(long seed = 0; seed < 300; seed++) {
+            ClusterModel model = LocalityInstances.generate(seed);
+            ResidualGraph graph = model.newResidualGraph();
+            int flow = new MaxFlow(graph).solveBalanced();
+            assertEquals(LocalityInstances.maxMatching(model, Integer.MAX_VALUE), flow, "seed " + seed);
+            int maxLoad = LocalityInstances.checkAssignment(model, LocalityInstances.getAssignment(graph));
+            assertEquals(LocalityInstances.minMaxLoad(model), maxLoad, "seed " + seed);
+            for(int arc = graph.arcBegin(ResidualGraph.SOURCE); arc < graph.arcEnd(ResidualGraph.SOURCE); arc++)
+                assertEquals(model.getServerSlot(graph.getHead(arc)), graph.getCapacity(arc), "seed " + seed);
+        }
+    }
+
+    //在已有的流上继续求解不会再增加流量
+    @Test
+    public void solveIsIdempotent()
+    {
+        ClusterModel model = new ClusterModel(new WorkloadGenerator(100, 1000).setSeed(7).setAffinityDegree(4).generate());
+        ResidualGraph graph = model.newResidualGraph();
+        MaxFlow maxFlow = new MaxFlow(graph);
+        assertTrue(maxFlow.solve() > 0);
+        assertEquals(0, maxFlow.solve());
+    }
+}
@@ -0,0 +1,45 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MinCostFlowTest
+{
+    //流量等于穷举得到的最大本地分配数目，总费用为所有最大分配中费用之和的最小值
+    @Test
+    public void matchesBruteForce()
+    {
+        for(long seed = 0; seed < 300; seed++) {
+            ClusterModel model = LocalityInstances.generate(seed);
+            ResidualGraph graph = model.newResidualGraph();
+
+            //与 ScheduleWithWeight 相同，只有 服务器->任务 边有费用，取值为 0..MAX_RELATION_VALUE
+            int[][] table = new int[model.getServerCount() + 1][model.getTaskCount() + 1];
+            int[] cost = new int[graph.getArcCount()];
+            for(int server = 1; server <= graph.getServerCount(); server++) {
+                for(int arc = graph.arcBegin(server); arc < graph.arcEnd(server); arc++) {
+                    int node = graph.getHead(arc);
+                    if(!graph.isTask(node))
+                        continue;
+                    int task = graph.getTaskId(node);
+                    table[server][task] = (int) ((server * 31 + task * 17 + seed) % (DataSource.MAX_RELATION_VALUE + 1));
+                    cost[arc] = table[server][task];
+                    cost[graph.getReverse(arc)] = -cost[arc];
+                }
+            }
+
+            MinCostFlow minCostFlow = new MinCostFlow(graph, cost);
+            int flow = minCostFlow.solve();
+            assertEquals(LocalityInstances.maxMatching(model, Integer.MAX_VALUE), flow, "seed " + seed);
+            int[] server = LocalityInstances.getAssignment(graph);
+            LocalityInstances.checkAssignment(model, server);
+
+            long total = 0;
+            for(int task = 1; task <= model.getTaskCount(); task++) {
+                if(server[task] != 0)
+                    total += table[server[task]][task];
+            }
+            assertEquals(total, minCostFlow.getTotalCost(), "seed " + seed);
+            assertEquals(LocalityInstances.minCost(model, table), total, "seed " + seed);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackedAffinityMatrixTest
+{
+    static int value(int i, int j)
+    {
+        return (Math.min(i, j) * 7 + Math.max(i, j) * 13) % 128;
+    }
+
+    //上三角元素按行连续编号，不重叠也没有空隙
+    @Test
+    public void indexIsRowMajor()
+    {
+        for(int n = 1; n <= 40; n++) {
+            long expected = 0;
+            for(int i = 1; i <= n; i++) {
+                for(int j = i + 1; j <= n; j++)
+                    assertEquals(expected++, PackedAffinityMatrix.getIndex(n, i, j));
+            }
+            assertEquals(expected, PackedAffinityMatrix.getSize(n));
+        }
+    }
+
+    //紧密度对称，对角线为 0，0..127 的取值原样保存
+    @Test
+    public void getReturnsWhatWasSet()
+    {
+        int n = 50;
+        PackedAffinityMatrix matrix = new PackedAffinityMatrix(n);
+        for(int i = 1; i <= n; i++) {
+            for(int j = 1; j < i; j++)
+                matrix.set(i, j, value(i, j));
+            matrix.set(i, i, 99);
+        }
+        assertEquals(n, matrix.getTaskCount());
+        for(int i = 1; i <= n; i++) {
+            for(int j = 1; j <= n; j++)
+                assertEquals(i == j ? 0 : value(i, j), matrix.get(i, j), i + "," + j);
+        }
+        matrix.set(1, 2, 127);
+        assertEquals(127, matrix.get(2, 1));
+    }
+
+    //稠密存储时访问所有紧密度大于 0 的任务
+    @Test
+    public void forEachNeighborVisitsPositiveValues()
+    {
+        int n = 30;
+        PackedAffinityMatrix matrix = new PackedAffinityMatrix(n);
+        for(int i = 1; i <= n; i++) {
+            for(int j = i + 1; j <= n; j++)
+                matrix.set(i, j, value(i, j));
+        }
+        for(int i = 1; i <= n; i++) {
+            Map<Integer, Integer> expected = new HashMap<>();
+            for(int j = 1; j <= n; j++) {
+                if(j != i && value(i, j) > 0)
+                    expected.put(j, value(i, j));
+            }
+            Map<Integer, Integer> visited = new HashMap<>();
+            matrix.forEachNeighbor(i, visited::put);
+            assertEquals(expected, visited);
+            assertEquals(n - 1, matrix.getNeighborCount(i));
+        }
+    }
+
+    //紧密度超出 0..127 时拒绝而不是截断，原有的值保持不变
+    @Test
+    public void rejectsValuesOutsideByteRange()
+    {
+        PackedAffinityMatrix matrix = new PackedAffinityMatrix(4);
+        matrix.set(1, 2, 5);
+        assertThrows(IllegalArgumentException.class, () -> matrix.set(1, 2, 128));
+        assertThrows(IllegalArgumentException.class, () -> matrix.set(2, 1, 255));
+        assertThrows(IllegalArgumentException.class, () -> matrix.set(1, 2, -1));
+        assertEquals(5, matrix.get(1, 2));
+        matrix.set(3, 4, 0);
+        matrix.set(4, 3, Byte.MAX_VALUE);
+        assertEquals(Byte.MAX_VALUE, matrix.get(3, 4));
+    }
+}
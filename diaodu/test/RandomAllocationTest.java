@@ -0,0 +1,59 @@
+import java.time.Duration;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RandomAllocationTest
+{
+    //任务数目多于 slot 总数时分配能够结束，每个服务器分配的任务不超过其 slot 数目，slot 全部用完
+    @Test
+    public void moreTasksThanSlots()
+    {
+        DataSource ds = new WorkloadGenerator(10, 200).setSeed(4).setSlotRange(3, 6).generate();
+        //生成时任务数目不超过 slot 总数，此处再减少 slot，使 slot 总数远小于任务数目
+        int totalSlots = 0;
+        for(int i = 0; i < ds.getServers().size(); i++) {
+            ds.getServers().get(i).setSlot(i % 3);
+            totalSlots += i % 3;
+        }
+        ClusterModel model = new ClusterModel(ds);
+        assertTrue(model.getTaskCount() > totalSlots);
+
+        List<Server> servers = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                () -> new RandomAllocation().getAllocation(model));
+        Set<String> allocated = new HashSet<>();
+        for(Server server : servers) {
+            int slot = model.getServerSlot(model.getRegistry().getServerId(server.getServerName()));
+            int count = server.getAllocatedTask().size();
+            assertTrue(count <= slot, server.getServerName() + " " + count + " > " + slot);
+            //返回的 slot 为剩余的 slot 数目
+            assertEquals(slot - count, server.getSlot());
+            assertEquals(0, server.getSlot());
+            for(String task : server.getAllocatedTask())
+                assertTrue(allocated.add(task), task);
+        }
+        assertEquals(totalSlots, allocated.size());
+        assertEquals(totalSlots, new RandomAllocation().schedule(model).getAssignedCount());
+    }
+
+    //相同的种子和模型得到相同的分配，不同的种子得到不同的分配
+    @Test
+    public void sameSeedSameAllocation()
+    {
+        ClusterModel model = new ClusterModel(new WorkloadGenerator(30, 150).setSeed(2).generate());
+        assertEquals(allocation(new RandomAllocation(7).getAllocation(model)), allocation(new RandomAllocation(7).getAllocation(model)));
+        assertEquals(allocation(new RandomAllocation().getAllocation(model)),
+                allocation(new RandomAllocation(Scheduler.DEFAULT_SEED).getAllocation(model)));
+        assertNotEquals(allocation(new RandomAllocation(7).getAllocation(model)), allocation(new RandomAllocation(8).getAllocation(model)));
+    }
+
+    private static Map<String, List<String>> allocation(List<Server> servers)
+    {
+        Map<String, List<String>> allocation = new HashMap<>();
+        for(Server server : servers)
+            allocation.put(server.getServerName(), server.getAllocatedTask());
+        return allocation;
+    }
+}
@@ -0,0 +1,144 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResidualGraphTest
+{
+    /**
+     * s1(slot 2)、s2(slot 1)，s1 上有 t1、t2 的副本，s2 上有 t2、t3 的副本
+     */
+    private static ResidualGraph smallGraph()
+    {
+        IdRegistry registry = new IdRegistry();
+        registry.registerServer("s1");
+        registry.registerServer("s2");
+        for(int i = 1; i <= 3; i++)
+            registry.registerTask("t" + i);
+        ResidualGraph.Builder builder = new ResidualGraph.Builder(registry);
+        builder.addEdge(ResidualGraph.SOURCE, builder.node("s1"), 2);
+        builder.addEdge(ResidualGraph.SOURCE, builder.node("s2"), 1);
+        for(String[] edge : new String[][]{{"s1", "t1"}, {"s1", "t2"}, {"s2", "t2"}, {"s2", "t3"},
+                {"t1", "T"}, {"t2", "T"}, {"t3", "T"}})
+            builder.addEdge(builder.node(edge[0]), builder.node(edge[1]), 1);
+        return builder.build();
+    }
+
+    //以 from 为起点、to 为终点的边
+    private static int arc(ResidualGraph graph, int from, int to)
+    {
+        for(int arc = graph.arcBegin(from); arc < graph.arcEnd(from); arc++) {
+            if(graph.getHead(arc) == to)
+                return arc;
+        }
+        throw new AssertionError(graph.getName(from) + "->" + graph.getName(to));
+    }
+
+    @Test
+    public void pushAndWithdraw()
+    {
+        ResidualGraph graph = smallGraph();
+        int s1 = graph.getNode("s1"), t1 = graph.getNode("t1"), sink = graph.getSink();
+        int[] path = {arc(graph, ResidualGraph.SOURCE, s1), arc(graph, s1, t1), arc(graph, t1, sink)};
+        assertEquals(2, graph.getCapacity(path[0]));
+        assertEquals(-1, graph.getAssignedServer(t1));
+
+        //推送一单位的流：正向边的残留容量减 1，反向边加 1，容量不变
+        for(int arc : path)
+            graph.push(arc, 1);
+        assertEquals(1, graph.getResidual(path[0]));
+        assertEquals(1, graph.getResidual(graph.getReverse(path[0])));
+        assertEquals(2, graph.getCapacity(path[0]));
+        assertEquals(0, graph.getResidual(path[1]));
+        assertEquals(s1, graph.getAssignedServer(t1));
+
+        //副本上的修改不影响原图
+        ResidualGraph copy = graph.copy();
+        for(int i = path.length - 1; i >= 0; i--)
+            copy.push(copy.getReverse(path[i]), 1);
+        assertEquals(-1, copy.getAssignedServer(t1));
+        assertEquals(s1, graph.getAssignedServer(t1));
+
+        //沿反向边推送即回撤，恢复到初始的残留容量
+        for(int i = path.length - 1; i >= 0; i--)
+            graph.push(graph.getReverse(path[i]), 1);
+        assertEquals(2, graph.getResidual(path[0]));
+        assertEquals(1, graph.getResidual(path[1]));
+        assertEquals(0, graph.getResidual(graph.getReverse(path[1])));
+        assertEquals(-1, graph.getAssignedServer(t1));
+
+        //修改容量时保留已经走过的流
+        graph.push(path[0], 1);
+        graph.setCapacity(path[0], 3);
+        assertEquals(2, graph.getResidual(path[0]));
+        assertEquals(3, graph.getCapacity(path[0]));
+    }
+
+    //移除结点后与它相连的边（正反两个方向）均不可用，其余的边不受影响
+    @Test
+    public void removeNode()
+    {
+        ResidualGraph graph = smallGraph();
+        int t2 = graph.getNode("t2");
+        int other = arc(graph, graph.getNode("s2"), graph.getNode("t3"));
+        graph.removeNode(t2);
+        for(int arc = graph.arcBegin(t2); arc < graph.arcEnd(t2); arc++) {
+            assertEquals(0, graph.getResidual(arc));
+            assertEquals(0, graph.getResidual(graph.getReverse(arc)));
+            assertEquals(0, graph.getCapacity(arc));
+        }
+        assertEquals(3, graph.arcEnd(t2) - graph.arcBegin(t2));
+        assertEquals(1, graph.getResidual(other));
+        assertEquals(-1, graph.getAssignedServer(t2));
+    }
+
+    //每个结点 liveBegin..liveEnd 中的边恰好是以它为起点并且残留容量大于 0 的边
+    static void assertLiveArcs(ResidualGraph graph)
+    {
+        for(int v = 0; v < graph.getNodeCount(); v++) {
+            assertEquals(graph.arcBegin(v), graph.liveBegin(v));
+            Set<Integer> live = new HashSet<>();
+            for(int i = graph.liveBegin(v); i < graph.liveEnd(v); i++) {
+                int arc = graph.getLiveArc(i);
+                assertTrue(arc >= graph.arcBegin(v) && arc < graph.arcEnd(v), "node " + v);
+                live.add(arc);
+            }
+            Set<Integer> expected = new HashSet<>();
+            for(int arc = graph.arcBegin(v); arc < graph.arcEnd(v); arc++) {
+                if(graph.getResidual(arc) > 0)
+                    expected.add(arc);
+            }
+            assertEquals(expected, live, "node " + v);
+            assertEquals(expected.size(), graph.liveEnd(v) - graph.liveBegin(v));
+        }
+    }
+
+    //随机地推送流、回撤流、修改容量、移除边和结点之后，可用边索引与残留容量一致
+    @Test
+    public void liveArcsMatchResidual()
+    {
+        for(long seed = 0; seed < 30; seed++) {
+            ResidualGraph graph = LocalityInstances.generate(seed).newResidualGraph();
+            assertLiveArcs(graph);
+            Random random = new Random(seed);
+            for(int step = 0; step < 300; step++) {
+                int arc = random.nextInt(graph.getArcCount());
+                int op = random.nextInt(10);
+                if(op < 6) {
+                    //推送流；沿反向边推送即回撤
+                    if(graph.getResidual(arc) > 0)
+                        graph.push(arc, 1 + random.nextInt(graph.getResidual(arc)));
+                }
+                else if(op < 8)
+                    graph.setCapacity(arc, graph.getResidual(graph.getReverse(arc)) + random.nextInt(3));
+                else if(op == 8)
+                    graph.removeArc(arc);
+                else
+                    graph.removeNode(random.nextInt(graph.getNodeCount()));
+                assertLiveArcs(graph);
+            }
+            assertLiveArcs(graph.copy());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScheduleEvaluatorTest
+{
+    /**
+     * 两个服务器 s1(slot 2)、s2(slot 1)，三个任务，t1、t2 的数据在 s1 上，t3 的数据在 s2 上，
+     * 紧密度 (1,2)=5、(1,3)=2、(2,3)=7
+     */
+    private static ClusterModel smallModel()
+    {
+        IdRegistry registry = new IdRegistry();
+        List<Server> servers = Arrays.asList(new Server("s1", 0, 2), new Server("s2", 0, 1));
+        for(Server server : servers)
+            registry.registerServer(server.getServerName());
+        Set<String> taskSet = new HashSet<>(Arrays.asList("t1", "t2", "t3"));
+        for(int i = 1; i <= 3; i++)
+            registry.registerTask("t" + i);
+        Map<String, Set<String>> preferedTasks = new HashMap<>();
+        preferedTasks.put("s1", new HashSet<>(Arrays.asList("t1", "t2")));
+        preferedTasks.put("s2", new HashSet<>(Collections.singletonList("t3")));
+        Map<String, Edge> edges = new HashMap<>();
+        for(Edge edge : new Edge[]{new Edge("s1", "t1"), new Edge("s1", "t2"), new Edge("s2", "t3"),
+                new Edge("t1", "T"), new Edge("t2", "T"), new Edge("t3", "T")})
+            edges.put(edge.getPath(), edge);
+        PackedAffinityMatrix relation = new PackedAffinityMatrix(3);
+        relation.set(1, 2, 5);
+        relation.set(1, 3, 2);
+        relation.set(2, 3, 7);
+        return new ClusterModel(new DataSource(registry, servers, taskSet, preferedTasks, edges, 3, relation));
+    }
+
+    @Test
+    public void smallExample()
+    {
+        ScheduleEvaluator evaluator = new ScheduleEvaluator(smallModel());
+        evaluator.assign(1, 1);
+        evaluator.assign(2, 1);
+        evaluator.assign(3, 2);
+        assertEquals(5, evaluator.getTotalAffinity());
+        assertEquals(3, evaluator.getLocalTaskCount());
+        assertEquals(1.0, evaluator.getLocalityRatio(), 1e-9);
+        assertEquals(1.5, evaluator.getLoadMean(), 1e-9);
+        assertEquals(0.25, evaluator.getLoadVariance(), 1e-9);
+        assertEquals(1.0, evaluator.getSlotUtilization(), 1e-9);
+        assertEquals(0, evaluator.getOverloadedServerCount());
+        assertArrayEquals(new int[]{0, 1, 1}, evaluator.getLoadDistribution());
+
+        //把 t3 移到 s1 上：增加与 t1、t2 的紧密度
+        assertEquals(9, evaluator.getAffinityDelta(3, 1));
+        evaluator.assign(3, 1);
+        assertEquals(14, evaluator.getTotalAffinity());
+        assertEquals(2, evaluator.getLocalTaskCount());
+        assertEquals(2.25, evaluator.getLoadVariance(), 1e-9);
+        assertEquals(3, evaluator.getMaxLoad());
+        assertEquals(1, evaluator.getOverloadedServerCount());
+        assertEquals(1.5, evaluator.getSlotUtilization(1), 1e-9);
+        assertEquals(0, evaluator.getSlotUtilization(2), 1e-9);
+
+        evaluator.unassign(1);
+        assertEquals(7, evaluator.getTotalAffinity());
+        assertEquals(2, evaluator.getAssignedCount());
+        assertEquals(0, evaluator.getServer(1));
+        assertEquals(1, evaluator.getLocalTaskCount());
+    }
+
+    //重新计算全部指标，与增量维护的结果比较
+    private static void assertMatchesRecompute(ScheduleEvaluator evaluator, ClusterModel model)
+    {
+        int serverCount = model.getServerCount(), taskCount = model.getTaskCount();
+        int[] load = new int[serverCount + 1];
+        long affinity = 0;
+        int local = 0, assigned = 0;
+        for(int i = 1; i <= taskCount; i++) {
+            int server = evaluator.getServer(i);
+            if(server == 0)
+                continue;
+            assigned++;
+            load[server]++;
+            if(model.isLocal(i, server))
+                local++;
+            for(int j = i + 1; j <= taskCount; j++) {
+                if(evaluator.getServer(j) == server)
+                    affinity += model.getRelationValue().get(i, j);
+            }
+        }
+        double mean = (double) assigned / serverCount, variance = 0;
+        int overloaded = 0;
+        for(int s = 1; s <= serverCount; s++) {
+            variance += (load[s] - mean) * (load[s] - mean);
+            assertEquals(load[s], evaluator.getServerLoad(s));
+            if(load[s] > model.getServerSlot(s))
+                overloaded++;
+        }
+        assertEquals(affinity, evaluator.getTotalAffinity());
+        assertEquals(local, evaluator.getLocalTaskCount());
+        assertEquals(assigned, evaluator.getAssignedCount());
+        assertEquals(overloaded, evaluator.getOverloadedServerCount());
+        assertEquals(variance / serverCount, evaluator.getLoadVariance(), 1e-6);
+    }
+
+    //从调度结果出发随机移动和撤销任务，增量维护的指标与重新计算的结果相同，紧密度的变化量与实际变化相同
+    @Test
+    public void incrementalMatchesRecompute()
+    {
+        for(int degree : new int[]{0, 4}) {
+            ClusterModel model = new ClusterModel(new WorkloadGenerator(20, 150).setSeed(3).setAffinityDegree(degree).generate());
+            Assignment assignment = new CouplingSchedule(LocalityEngine.MAX_FLOW).schedule(model);
+            ScheduleEvaluator evaluator = assignment.evaluate();
+            assertEquals(assignment.getLocalTaskCount(), evaluator.getLocalTaskCount());
+            assertMatchesRecompute(evaluator, model);
+
+            Random random = new Random(1);
+            for(int step = 0; step < 3000; step++) {
+                int task = 1 + random.nextInt(model.getTaskCount());
+                int server = random.nextInt(model.getServerCount() + 1);
+                long before = evaluator.getTotalAffinity();
+                long delta = evaluator.getAffinityDelta(task, server);
+                evaluator.assign(task, server);
+                assertEquals(delta, evaluator.getTotalAffinity() - before, "degree " + degree + " step " + step);
+                if(step % 100 == 0)
+                    assertMatchesRecompute(evaluator, model);
+            }
+            assertMatchesRecompute(evaluator, model);
+        }
+    }
+}
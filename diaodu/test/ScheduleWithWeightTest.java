@@ -0,0 +1,113 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScheduleWithWeightTest
+{
+    //以 t1 为核任务时只移除 t1 的边和本地任务，名称以 t1 开头的 t10..t19 不受影响
+    @Test
+    public void kernelRemovalKeepsSimilarNames()
+    {
+        //2 个服务器都存放全部 19 个任务的副本
+        ClusterModel model = new ClusterModel(new WorkloadGenerator(2, 19)
+                .setSeed(3).setReplicationFactor(2).setSlotRange(20, 20).generate());
+        List<Server> servers = model.newServers();
+        servers.get(0).getAllocatedTask().add("t1");
+        ScheduleContext context = new ScheduleContext(model, servers);
+        ResidualGraph graph = context.getGraph();
+        int t1 = graph.getNode("t1");
+        int[] residualBefore = new int[graph.getArcCount()];
+        for(int arc = 0; arc < graph.getArcCount(); arc++)
+            residualBefore[arc] = graph.getResidual(arc);
+
+        new ScheduleWithWeight().updateGraph(context);
+
+        //t1 的边（包括反向边）全部不可用，其余的边不变
+        for(int arc = 0; arc < graph.getArcCount(); arc++) {
+            boolean incident = graph.getTail(arc) == t1 || graph.getHead(arc) == t1;
+            assertEquals(incident ? 0 : residualBefore[arc], graph.getResidual(arc),
+                    graph.getName(graph.getTail(arc)) + "->" + graph.getName(graph.getHead(arc)));
+        }
+        for(int task = 10; task <= 19; task++) {
+            int node = graph.getNode("t" + task);
+            assertTrue(graph.liveEnd(node) > graph.liveBegin(node), "t" + task);
+        }
+        ResidualGraphTest.assertLiveArcs(graph);
+
+        //只有 t1 从两个服务器的本地任务集合中移除
+        IdRegistry registry = context.getRegistry();
+        for(int s = 1; s <= 2; s++) {
+            assertEquals(18, context.getLocalTaskCount(s));
+            assertFalse(context.removeLocalTask(registry.getTaskId("t1"), s));
+            for(int task = 10; task <= 19; task++)
+                assertTrue(context.removeLocalTask(registry.getTaskId("t" + task), s), "t" + task + " s" + s);
+        }
+    }
+
+    //核任务由种子选取，时间预算不受限制时相同的种子和模型总是得到相同的分配
+    @Test
+    public void sameSeedSameAllocation()
+    {
+        ClusterModel model = new ClusterModel(new WorkloadGenerator(20, 200).setSeed(5).setReplicationFactor(2).generate());
+        for(long seed = 0; seed < 3; seed++) {
+            ScheduleWithWeight first = new ScheduleWithWeight(LocalityEngine.AUGMENT_PATH, ScheduleListener.NONE, Long.MAX_VALUE, seed);
+            ScheduleWithWeight second = new ScheduleWithWeight(LocalityEngine.AUGMENT_PATH, ScheduleListener.NONE, Long.MAX_VALUE, seed);
+            assertEquals(allocation(first.getTaskAllocation(model)), allocation(second.getTaskAllocation(model)), "seed " + seed);
+            assertEquals(allocation(first.getTaskAllocationByMinCostFlow(model)),
+                    allocation(second.getTaskAllocationByMinCostFlow(model)), "seed " + seed);
+        }
+    }
+
+    //AffinityEngine.MIN_COST_FLOW 时 schedule 按最小费用流分配，与 getTaskAllocationByMinCostFlow 的结果相同
+    @Test
+    public void minCostEngineSchedulesByMinCostFlow()
+    {
+        ClusterModel model = new ClusterModel(new WorkloadGenerator(20, 200).setSeed(4).generate());
+        ScheduleWithWeight minCost = new ScheduleWithWeight(LocalityEngine.AUGMENT_PATH, AffinityEngine.MIN_COST_FLOW);
+        assertEquals(allocation(new ScheduleWithWeight().getTaskAllocationByMinCostFlow(model)),
+                allocation(minCost.schedule(model).getServers()));
+        assertEquals(allocation(new ScheduleWithWeight().getTaskAllocation(model)),
+                allocation(new ScheduleWithWeight(LocalityEngine.AUGMENT_PATH, AffinityEngine.CANDIDATE_FLOWS).schedule(model).getServers()));
+    }
+
+    //最大执行能力服务器没有任何候选流时换用下一个服务器，最终仍写回已接受的流并重新分配剩余的任务
+    @Test
+    public void emptyCandidatesStillWriteBack()
+    {
+        ClusterModel model = new ClusterModel(new WorkloadGenerator(4, 20).setSeed(2).setSlotRange(10, 10).generate());
+        Set<String> emptyServers = new HashSet<>();
+        ScheduleWithWeight schedule = new ScheduleWithWeight()
+        {
+            //第一次选中的服务器得不到任何候选流
+            @Override
+            public FlowCandidates getCandidateFlows(ScheduleContext context, String server, AffinityMatrix relationValue)
+            {
+                if(emptyServers.isEmpty() || emptyServers.contains(server)) {
+                    emptyServers.add(server);
+                    ResidualGraph graph = context.getGraph();
+                    return new FlowCandidates(graph, graph.getNode(server), graph.getSink(), 0, 0, 0, null);
+                }
+                return super.getCandidateFlows(context, server, relationValue);
+            }
+        };
+        List<Server> servers = schedule.getTaskAllocation(model);
+        assertEquals(1, emptyServers.size());
+        Set<String> assigned = new HashSet<>();
+        for(Server server : servers) {
+            assertTrue(server.getAllocatedTask().size() <= 10, server.getServerName());
+            for(String task : server.getAllocatedTask())
+                assertTrue(assigned.add(task), task);
+        }
+        assertEquals(model.getTaskCount(), assigned.size());
+    }
+
+    private static Map<String, List<String>> allocation(List<Server> servers)
+    {
+        Map<String, List<String>> allocation = new HashMap<>();
+        for(Server server : servers)
+            allocation.put(server.getServerName(), server.getAllocatedTask());
+        return allocation;
+    }
+}
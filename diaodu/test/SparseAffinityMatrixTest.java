@@ -0,0 +1,108 @@
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SparseAffinityMatrixTest
+{
+    //低于阈值的任务对不保存，其余与稠密矩阵相同，邻居按编号升序给出
+    @Test
+    public void thresholdKeepsLargeValues()
+    {
+        int n = 40, threshold = 60;
+        SparseAffinityMatrix.Builder builder = new SparseAffinityMatrix.Builder(n, threshold);
+        int pairs = 0;
+        for(int i = 1; i <= n; i++) {
+            for(int j = i + 1; j <= n; j++) {
+                builder.add(i, j, PackedAffinityMatrixTest.value(i, j));
+                if(PackedAffinityMatrixTest.value(i, j) >= threshold)
+                    pairs++;
+            }
+        }
+        SparseAffinityMatrix matrix = builder.build();
+        assertEquals(n, matrix.getTaskCount());
+        assertEquals(pairs, matrix.getPairCount());
+        for(int i = 1; i <= n; i++) {
+            int count = 0;
+            for(int j = 1; j <= n; j++) {
+                int value = PackedAffinityMatrixTest.value(i, j);
+                int expected = i != j && value >= threshold ? value : 0;
+                assertEquals(expected, matrix.get(i, j), i + "," + j);
+                if(expected > 0)
+                    count++;
+            }
+            assertEquals(count, matrix.getNeighborCount(i));
+
+            List<Integer> neighbors = new ArrayList<>();
+            int row = i;
+            matrix.forEachNeighbor(i, (task, value) -> {
+                assertEquals(matrix.get(row, task), value);
+                neighbors.add(task);
+            });
+            List<Integer> sorted = new ArrayList<>(neighbors);
+            Collections.sort(sorted);
+            assertEquals(sorted, neighbors);
+            assertEquals(count, neighbors.size());
+        }
+    }
+
+    //同一对任务加入多次时保留最大值，自身与自身的紧密度不保存
+    @Test
+    public void duplicatePairsKeepMaximum()
+    {
+        SparseAffinityMatrix.Builder builder = new SparseAffinityMatrix.Builder(3, 1);
+        builder.add(1, 2, 3);
+        builder.add(2, 1, 9);
+        builder.add(1, 2, 5);
+        builder.add(3, 3, 7);
+        SparseAffinityMatrix matrix = builder.build();
+        assertEquals(1, matrix.getPairCount());
+        assertEquals(9, matrix.get(1, 2));
+        assertEquals(9, matrix.get(2, 1));
+        assertEquals(0, matrix.get(3, 3));
+        assertEquals(0, matrix.getNeighborCount(3));
+    }
+
+    //任务对只要在任一端紧密度最大的 K 个之中就会被保留
+    @Test
+    public void topKKeepsPairsFromEitherEnd()
+    {
+        SparseAffinityMatrix.Builder builder = new SparseAffinityMatrix.Builder(4, 1).setTopK(1);
+        builder.add(1, 2, 9);
+        builder.add(1, 3, 8);
+        builder.add(1, 4, 7);
+        builder.add(2, 3, 1);
+        builder.add(2, 4, 2);
+        builder.add(3, 4, 3);
+        SparseAffinityMatrix matrix = builder.build();
+        assertEquals(3, matrix.getPairCount());
+        assertEquals(9, matrix.get(2, 1));
+        assertEquals(8, matrix.get(3, 1));
+        assertEquals(7, matrix.get(4, 1));
+        assertEquals(0, matrix.get(2, 3));
+        assertEquals(0, matrix.get(2, 4));
+        assertEquals(0, matrix.get(3, 4));
+        assertEquals(3, matrix.getNeighborCount(1));
+    }
+
+    //紧密度为 127 时保存不变，超过 127 时拒绝而不是截断成负数
+    @Test
+    public void rejectsValuesAboveByteRange()
+    {
+        SparseAffinityMatrix.Builder builder = new SparseAffinityMatrix.Builder(300, 1);
+        builder.add(1, 2, Byte.MAX_VALUE);
+        builder.add(257, 3, Byte.MAX_VALUE);
+        builder.add(1, 3, 1);
+        assertThrows(IllegalArgumentException.class, () -> builder.add(1, 4, 128));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(1, 4, 255));
+        SparseAffinityMatrix matrix = builder.build();
+        assertEquals(3, matrix.getPairCount());
+        assertEquals(Byte.MAX_VALUE, matrix.get(1, 2));
+        assertEquals(Byte.MAX_VALUE, matrix.get(2, 1));
+        assertEquals(Byte.MAX_VALUE, matrix.get(3, 257));
+        assertEquals(1, matrix.get(3, 1));
+        assertEquals(0, matrix.get(1, 4));
+        assertEquals(2, matrix.getNeighborCount(3));
+    }
+}
@@ -0,0 +1,86 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkloadGeneratorTest
+{
+    private static WorkloadGenerator generator(long seed)
+    {
+        return new WorkloadGenerator(30, 200)
+                .setSeed(seed)
+                .setReplicationFactor(3)
+                .setSlotRange(2, 9)
+                .setServerSkew(1.2)
+                .setAffinitySkew(2.0);
+    }
+
+    //相同的种子和参数生成相同的数据，不同的种子生成不同的数据
+    @Test
+    public void sameSeedSameWorkload()
+    {
+        DataSourceSnapshotTest.assertSameDataSource(generator(5).generate(), generator(5).generate());
+        DataSourceSnapshotTest.assertSameDataSource(generator(5).setAffinityDegree(4).generate(),
+                generator(5).setAffinityDegree(4).generate());
+        assertNotEquals(generator(5).generate().getPreferedTasks(), generator(6).generate().getPreferedTasks());
+
+        //没有指定种子时使用默认种子
+        DataSourceSnapshotTest.assertSameDataSource(new WorkloadGenerator(10, 40).generate(),
+                new WorkloadGenerator(10, 40).setSeed(WorkloadGenerator.DEFAULT_SEED).generate());
+        DataSourceSnapshotTest.assertSameDataSource(new DataSource(10, 40), new DataSource(10, 40));
+    }
+
+    //slot 数目在给定范围之内
+    @Test
+    public void slotsWithinRange()
+    {
+        for(Server server : generator(7).generate().getServers())
+            assertTrue(server.getSlot() >= 2 && server.getSlot() <= 9, "slot " + server.getSlot());
+        for(Server server : new WorkloadGenerator(10, 40).setSlotRange(4, 4).generate().getServers())
+            assertEquals(4, server.getSlot());
+    }
+
+    //getTotalSlots 与生成的服务器的 slot 总数相同，与任务数目无关
+    @Test
+    public void totalSlotsMatchGeneratedServers()
+    {
+        long total = 0;
+        for(Server server : generator(7).generate().getServers())
+            total += server.getSlot();
+        assertEquals(total, generator(7).getTotalSlots());
+        assertEquals(total, new WorkloadGenerator(30, 0).setSeed(7).setSlotRange(2, 9).getTotalSlots());
+    }
+
+    //稀疏紧密度中每个任务选取 affinityDegree 个不同的其他任务，紧密度对称，因此每个任务至少有这么多邻居
+    @Test
+    public void sparseAffinityHasDistinctPartners()
+    {
+        for(int degree : new int[]{1, 4, 40}) {
+            AffinityMatrix matrix = generator(3).setAffinityDegree(degree).generate().getRelationValue();
+            for(int i = 1; i <= matrix.getTaskCount(); i++) {
+                assertEquals(0, matrix.get(i, i));
+                assertTrue(matrix.getNeighborCount(i) >= degree, "degree " + degree + " task " + i);
+            }
+        }
+        //度数不小于任务数目时每个任务与其他所有任务都具有紧密度
+        AffinityMatrix matrix = new WorkloadGenerator(4, 6).setSlotRange(2, 2).setAffinityDegree(10).generate().getRelationValue();
+        for(int i = 1; i <= 6; i++)
+            assertEquals(5, matrix.getNeighborCount(i));
+    }
+
+    @Test
+    public void rejectsInvalidParameters()
+    {
+        WorkloadGenerator generator = new WorkloadGenerator(10, 40);
+        assertThrows(IllegalArgumentException.class, () -> generator.setSlotRange(5, 4));
+        assertThrows(IllegalArgumentException.class, () -> generator.setSlotRange(-1, 4));
+        assertThrows(IllegalArgumentException.class, () -> generator.setReplicationFactor(0));
+        assertThrows(IllegalArgumentException.class, () -> generator.setMaxRelationValue(128));
+        assertThrows(IllegalArgumentException.class, () -> generator.setAffinitySkew(0));
+        assertThrows(IllegalArgumentException.class, () -> generator.setAffinityDegree(-1));
+        assertThrows(IllegalArgumentException.class, () -> generator.setServerSkew(-0.5));
+        assertThrows(IllegalArgumentException.class, () -> new WorkloadGenerator(-1, 40));
+        //任务数目与紧密度的度数之积超过 int 的范围
+        assertThrows(IllegalArgumentException.class, () -> new WorkloadGenerator(1, 100000000)
+                .setSlotRange(100000000, 100000000).setAffinityDegree(30).generate());
+    }
+}